@@ -0,0 +1,64 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a write/drain cycle of one block through an AudioBuffer holding a backlog, in ns per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AudioBufferBenchmark {
+    /**
+     * Buffer size, in seconds of stereo audio.  The backlog kept in the buffer is half of it.
+     */
+    @Param({"0.1", "0.5"})
+    public float seconds;
+
+    private AudioBuffer buffer;
+    private float[] block, out;
+    private FloatBuffer floatBuffer;
+
+    @Setup
+    public void setup() {
+        buffer = new AudioBuffer((int) (BenchmarkAudio.SAMPLE_RATE * seconds) * BenchmarkAudio.CHANNELS);
+        block = BenchmarkAudio.noise(BenchmarkAudio.BLOCK_SAMPLES, 0L);
+        out = new float[BenchmarkAudio.BLOCK_SAMPLES];
+        floatBuffer = FloatBuffer.wrap(block);
+
+        while (buffer.availableOutput() < buffer.getBufferSize() / 2)
+            buffer.write(block, Math.min(block.length, buffer.getBufferSize() / 2 - buffer.availableOutput()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public float[] writeRead() {
+        buffer.write(block, block.length);
+        buffer.read(out, 0, out.length);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public float[] writeMix() {
+        buffer.write(block, block.length);
+        buffer.mix(out, 0, out.length);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public float[] writeFloatBufferRead() {
+        floatBuffer.clear();
+        buffer.write(floatBuffer, block.length);
+        buffer.read(out, 0, out.length);
+        return out;
+    }
+}
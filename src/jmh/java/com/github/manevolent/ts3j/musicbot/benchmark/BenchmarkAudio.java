@@ -0,0 +1,31 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Random;
+
+/**
+ * Shared constants and sample data for the audio benchmarks.
+ */
+final class BenchmarkAudio {
+    static final float SAMPLE_RATE = 48000F;
+    static final int CHANNELS = 2;
+
+    /**
+     * One 20ms Opus frame of interleaved stereo samples at 48kHz; the unit every benchmark normalizes to, so that
+     * scores read as ns/sample via @OperationsPerInvocation.
+     */
+    static final int BLOCK_SAMPLES = 960 * CHANNELS;
+
+    static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 32, CHANNELS, true, false);
+
+    private BenchmarkAudio() {
+
+    }
+
+    static float[] noise(int len, long seed) {
+        Random random = new Random(seed);
+        float[] samples = new float[len];
+        for (int i = 0; i < len; i ++) samples[i] = (random.nextFloat() * 2f) - 1f;
+        return samples;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.BufferedMixer;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.FilterDither;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.FilterGain;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.SoftClipFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one full mixer tick (channel reads, mixing, filter chain, sink writes) in ns per mixed sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MixerBenchmark {
+    @Param({"1", "4", "16"})
+    public int channels;
+
+    /**
+     * Filter chain, as a '+' separated list of: gain, clip, dither.  "none" for no filters.
+     */
+    @Param({"none", "gain", "gain+clip+dither"})
+    public String filters;
+
+    @Param({"1", "4"})
+    public int sinks;
+
+    private BufferedMixer mixer;
+    private NullMixerSink[] nullSinks;
+
+    @Setup
+    public void setup() {
+        mixer = new BufferedMixer(BenchmarkAudio.BLOCK_SAMPLES, BenchmarkAudio.SAMPLE_RATE, BenchmarkAudio.CHANNELS);
+
+        if (!filters.equals("none"))
+            for (String filter : filters.split("\\+"))
+                mixer.addFilter(createFilter(filter));
+
+        nullSinks = new NullMixerSink[sinks];
+        for (int i = 0; i < sinks; i ++) mixer.addSink(nullSinks[i] = new NullMixerSink());
+
+        for (int i = 0; i < channels; i ++) mixer.addChannel(new NoiseMixerChannel(i));
+
+        // Normally done by MixerProcessTask; without it the sinks never accept samples
+        mixer.setRunning(true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mixer.setRunning(false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public boolean processBuffer() {
+        return mixer.processBuffer();
+    }
+
+    private static MixerFilter[] createFilter(String name) {
+        MixerFilter[] filters = new MixerFilter[BenchmarkAudio.CHANNELS];
+
+        switch (name) {
+            case "gain":
+                FilterGain gain = new FilterGain(0.8f);
+                for (int ch = 0; ch < filters.length; ch ++) filters[ch] = gain;
+                break;
+            case "clip":
+                for (int ch = 0; ch < filters.length; ch ++) filters[ch] = new SoftClipFilter();
+                break;
+            case "dither":
+                for (int ch = 0; ch < filters.length; ch ++) filters[ch] = new FilterDither(24);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown filter: " + name);
+        }
+
+        return filters;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
+
+/**
+ * Endless mixer channel replaying a pre-generated block of noise, so the mixer is never starved.
+ */
+final class NoiseMixerChannel implements MixerChannel {
+    private final float[] noise;
+    private int position = 0;
+
+    NoiseMixerChannel(long seed) {
+        this.noise = BenchmarkAudio.noise(BenchmarkAudio.BLOCK_SAMPLES * 4, seed);
+    }
+
+    @Override
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int read(float[] buffer, int offs, int len) {
+        int copied = 0;
+
+        while (copied < len) {
+            int copy = Math.min(len - copied, noise.length - position);
+            System.arraycopy(noise, position, buffer, offs + copied, copy);
+            position = (position + copy) % noise.length;
+            copied += copy;
+        }
+
+        return copied;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return (int) BenchmarkAudio.SAMPLE_RATE;
+    }
+
+    @Override
+    public int getChannels() {
+        return BenchmarkAudio.CHANNELS;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
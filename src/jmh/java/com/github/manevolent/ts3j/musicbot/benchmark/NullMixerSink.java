@@ -0,0 +1,73 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.output.MixerSink;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Mixer sink that accepts everything and keeps a running checksum, so the written samples can't be optimized away.
+ */
+final class NullMixerSink implements MixerSink {
+    private boolean running = false;
+    private long position = 0L;
+    private float checksum = 0f;
+
+    @Override
+    public AudioFormat getAudioFormat() {
+        return BenchmarkAudio.FORMAT;
+    }
+
+    @Override
+    public void write(float[] buffer, int len) {
+        checksum += buffer[0] + buffer[len - 1];
+        position += len;
+    }
+
+    @Override
+    public int availableInput() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean start() {
+        if (running) return false;
+        running = true;
+        return true;
+    }
+
+    @Override
+    public boolean stop() {
+        if (!running) return false;
+        running = false;
+        return true;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long getUnderflows() {
+        return 0;
+    }
+
+    @Override
+    public long getOverflows() {
+        return 0;
+    }
+
+    float getChecksum() {
+        return checksum;
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ts3j.musicbot.audio.opus.DirectOpusEncoder;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusEncoder;
+import net.tomp2p.opuswrapper.Opus;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding of one 20ms stereo frame, in ns per sample.  Requires libopus to be loadable.
+ *
+ * Compare direct=false/true at complexity 0, where libopus itself is cheapest, to see the per-frame JNA overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OpusEncoderBenchmark {
+    /**
+     * Frames per encodeBatch call, as with the default opus.batch.
+     */
+    private static final int BATCH = 4;
+
+    @Param({"0", "5", "10"})
+    public int complexity;
+
+    @Param({"96000"})
+    public int bitrate;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private OpusEncoder encoder;
+    private float[] frame;
+    private ByteBuffer packet;
+
+    private float[] frames;
+    private ByteBuffer[] packets;
+    private int[] lengths;
+
+    @Setup
+    public void setup() {
+        int sampleRate = (int) BenchmarkAudio.SAMPLE_RATE;
+        int frameSize = BenchmarkAudio.BLOCK_SAMPLES / BenchmarkAudio.CHANNELS;
+
+        encoder = direct ?
+                new DirectOpusEncoder(sampleRate, frameSize, BenchmarkAudio.CHANNELS, false, 4096, BATCH) :
+                new OpusEncoder(sampleRate, frameSize, BenchmarkAudio.CHANNELS, false);
+
+        encoder.setEncoderValue(Opus.OPUS_SET_SIGNAL_REQUEST, Opus.OPUS_SIGNAL_MUSIC);
+        encoder.setEncoderValue(Opus.OPUS_SET_BITRATE_REQUEST, bitrate);
+        encoder.setEncoderValue(Opus.OPUS_SET_COMPLEXITY_REQUEST, complexity);
+
+        frame = BenchmarkAudio.noise(BenchmarkAudio.BLOCK_SAMPLES, 0L);
+        packet = ByteBuffer.allocate(4096);
+
+        frames = BenchmarkAudio.noise(BenchmarkAudio.BLOCK_SAMPLES * BATCH, 1L);
+        packets = new ByteBuffer[BATCH];
+        for (int i = 0; i < BATCH; i ++) packets[i] = ByteBuffer.allocate(4096);
+        lengths = new int[BATCH];
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoder.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public byte[] encode() {
+        return encoder.encode(frame, frame.length);
+    }
+
+    /**
+     * Encodes into a reused packet buffer, as TeamspeakFastMixerSink does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public int encodeInto() {
+        packet.clear();
+        return encoder.encode(frame, frame.length, packet);
+    }
+
+    /**
+     * Encodes a batch of frames in one call, as TeamspeakFastMixerSink does.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH * BenchmarkAudio.BLOCK_SAMPLES)
+    public int[] encodeBatch() {
+        for (ByteBuffer target : packets) target.clear();
+        encoder.encode(frames, 0, BATCH, packets, lengths);
+        return lengths;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ffmpeg4j.FFmpeg;
+import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
+import com.github.manevolent.ts3j.musicbot.audio.resample.FFmpegResampler;
+import com.github.manevolent.ts3j.musicbot.audio.resample.PolyphaseResampler;
+import com.github.manevolent.ts3j.musicbot.audio.resample.Resampler;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resampling one 20ms block into the mixer format, in ns per input sample, with FFmpeg (which requires its
+ * natives) and with the Java polyphase resampler.  See ResamplerQuality for how they compare in quality.
+ *
+ * resampleBuffered goes buffer to buffer, as ResampledAudioPlayer does; with direct buffers swresample works on them
+ * in place.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResamplerBenchmark {
+    private static final int INPUT_SAMPLES = 882 * BenchmarkAudio.CHANNELS; // 20ms of 44.1kHz stereo
+
+    @Param({"ffmpeg", "java"})
+    public String engine;
+
+    @Param({"44100", "48000"})
+    public int inputSampleRate;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private Resampler resampler;
+    private AudioBuffer input, output;
+    private float[] block, drain;
+
+    @Setup
+    public void setup() {
+        int bufferSize = (int) BenchmarkAudio.SAMPLE_RATE * BenchmarkAudio.CHANNELS;
+        AudioFormat inputFormat = new AudioFormat(inputSampleRate, 32, BenchmarkAudio.CHANNELS, true, false);
+
+        switch (engine) {
+            case "ffmpeg":
+                FFmpeg.register();
+                resampler = new FFmpegResampler(inputFormat, BenchmarkAudio.FORMAT, bufferSize);
+                break;
+            case "java":
+                resampler = new PolyphaseResampler(inputFormat, BenchmarkAudio.FORMAT, bufferSize);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown engine: " + engine);
+        }
+
+        input = new AudioBuffer(bufferSize, direct);
+        output = new AudioBuffer(bufferSize, direct);
+        block = BenchmarkAudio.noise(INPUT_SAMPLES, 0L);
+        drain = new float[bufferSize];
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        resampler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_SAMPLES)
+    public int resample() {
+        int resampled = resampler.resample(block, block.length, output);
+        output.read(drain, 0, output.availableOutput());
+        return resampled;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUT_SAMPLES)
+    public int resampleBuffered() {
+        input.write(block, block.length);
+        int resampled = resampler.resample(input, output);
+        output.read(drain, 0, output.availableOutput());
+        return resampled;
+    }
+}
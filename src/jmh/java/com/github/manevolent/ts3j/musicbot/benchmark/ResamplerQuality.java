@@ -0,0 +1,135 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ffmpeg4j.FFmpeg;
+import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
+import com.github.manevolent.ts3j.musicbot.audio.resample.FFmpegResampler;
+import com.github.manevolent.ts3j.musicbot.audio.resample.PolyphaseResampler;
+import com.github.manevolent.ts3j.musicbot.audio.resample.Resampler;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Arrays;
+
+/**
+ * Measures how faithfully each resampler converts sine tones into the mixer format, to go with ResamplerBenchmark's
+ * speed.  For each tone it prints the gain, which shows the passband ripple and rolloff (or, above the output's
+ * Nyquist frequency, how much of the tone aliases back in), and the signal to noise and distortion ratio.
+ *
+ * java -cp target/benchmarks.jar com.github.manevolent.ts3j.musicbot.benchmark.ResamplerQuality [java] [ffmpeg]
+ */
+public final class ResamplerQuality {
+    private static final int[][] INPUTS = { { 44100, 2 }, { 22050, 1 }, { 96000, 2 } }; // Rate, channels
+    private static final double[] TONES = { 100, 1000, 5000, 10000, 15000, 19000, 21000, 23000, 30000 };
+    private static final float AMPLITUDE = 0.5F;
+
+    private ResamplerQuality() {
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] engines = args.length > 0 ? args : new String[] { "java", "ffmpeg" };
+
+        System.out.println(String.format("%-8s %8s %4s %8s %10s %10s", "engine", "rate", "ch", "tone", "gain dB", "SINAD dB"));
+
+        for (String engine : engines) {
+            for (int[] input : INPUTS) {
+                for (double tone : TONES) {
+                    if (tone >= input[0] / 2D) continue;
+
+                    double[] result = measure(engine, input[0], input[1], tone);
+
+                    System.out.println(String.format(
+                            "%-8s %8d %4d %8.0f %10.2f %10s",
+                            engine, input[0], input[1], tone, result[0],
+                            Double.isNaN(result[1]) ? "-" : String.format("%.1f", result[1])
+                    ));
+                }
+            }
+        }
+    }
+
+    private static Resampler create(String engine, AudioFormat in, AudioFormat out, int bufferSize) {
+        switch (engine) {
+            case "java":
+                return new PolyphaseResampler(in, out, bufferSize);
+            case "ffmpeg":
+                FFmpeg.register();
+                return new FFmpegResampler(in, out, bufferSize);
+            default:
+                throw new IllegalArgumentException("unknown engine: " + engine);
+        }
+    }
+
+    /**
+     * Resamples one second of a tone into the mixer format.
+     * @return Gain, in dB, and SINAD in dB (NaN if the tone is above the output's Nyquist frequency)
+     */
+    private static double[] measure(String engine, int sampleRate, int channels, double tone) throws Exception {
+        AudioFormat in = new AudioFormat(sampleRate, 32, channels, true, false);
+        float outputRate = BenchmarkAudio.SAMPLE_RATE;
+        int outputChannels = BenchmarkAudio.CHANNELS;
+
+        int block = (sampleRate / 50) * channels;
+        float[] samples = new float[block];
+        AudioBuffer output = new AudioBuffer((int) outputRate * outputChannels * 2);
+
+        try (Resampler resampler = create(engine, in, BenchmarkAudio.FORMAT, block * 4)) {
+            for (int frame = 0; frame < sampleRate; frame += block / channels) {
+                for (int i = 0; i < block / channels; i ++) {
+                    float sample = AMPLITUDE * (float) Math.sin(2D * Math.PI * tone * (frame + i) / sampleRate);
+                    for (int ch = 0; ch < channels; ch ++) samples[(i * channels) + ch] = sample;
+                }
+
+                resampler.resample(samples, samples.length, output);
+            }
+
+            resampler.flush(output);
+        }
+
+        float[] resampled = new float[output.availableOutput()];
+        output.read(resampled, 0, resampled.length);
+
+        // The first channel, without the edges
+        int margin = (int) outputRate / 10;
+        double[] signal = new double[(resampled.length / outputChannels) - (2 * margin)];
+        for (int i = 0; i < signal.length; i ++) signal[i] = resampled[(i + margin) * outputChannels];
+
+        double rms = rms(signal);
+        double inputRms = AMPLITUDE / Math.sqrt(2D);
+
+        if (tone >= outputRate / 2D)
+            return new double[] { 20D * Math.log10(rms / inputRms), Double.NaN };
+
+        // Least-squares fit of the tone, with any delay as its phase; everything else is noise and distortion
+        double w = 2D * Math.PI * tone / outputRate;
+        double ss = 0D, sc = 0D, cc = 0D, ys = 0D, yc = 0D;
+
+        for (int i = 0; i < signal.length; i ++) {
+            double s = Math.sin(w * i), c = Math.cos(w * i);
+            ss += s * s;
+            sc += s * c;
+            cc += c * c;
+            ys += signal[i] * s;
+            yc += signal[i] * c;
+        }
+
+        double determinant = (ss * cc) - (sc * sc);
+        double a = ((ys * cc) - (yc * sc)) / determinant;
+        double b = ((yc * ss) - (ys * sc)) / determinant;
+
+        double[] residual = Arrays.copyOf(signal, signal.length);
+        for (int i = 0; i < residual.length; i ++) residual[i] -= (a * Math.sin(w * i)) + (b * Math.cos(w * i));
+
+        double fitRms = Math.sqrt(((a * a) + (b * b)) / 2D);
+
+        return new double[] {
+                20D * Math.log10(fitRms / inputRms),
+                20D * Math.log10(fitRms / rms(residual))
+        };
+    }
+
+    private static double rms(double[] signal) {
+        double sum = 0D;
+        for (double sample : signal) sum += sample * sample;
+        return Math.sqrt(sum / signal.length);
+    }
+}
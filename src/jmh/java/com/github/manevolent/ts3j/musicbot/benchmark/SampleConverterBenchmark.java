@@ -0,0 +1,56 @@
+package com.github.manevolent.ts3j.musicbot.benchmark;
+
+import com.github.manevolent.ts3j.musicbot.audio.resample.SampleConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PCM to float conversion of one block, and back, in ns per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SampleConverterBenchmark {
+    @Param({
+            "SIGNED_8BIT", "SIGNED_16BIT", "SIGNED_24BIT", "SIGNED_32BIT",
+            "UNSIGNED_8BIT", "UNSIGNED_16BIT", "UNSIGNED_24BIT", "UNSIGNED_32BIT"
+    })
+    public SampleConverter.Depth depth;
+
+    @Param({"false", "true"})
+    public boolean bigEndian;
+
+    private byte[] pcm;
+    private FloatBuffer target;
+    private float[] samples;
+
+    @Setup
+    public void setup() {
+        pcm = new byte[BenchmarkAudio.BLOCK_SAMPLES * (depth.getBitDepth() / 8)];
+        new Random(0L).nextBytes(pcm);
+
+        target = FloatBuffer.allocate(BenchmarkAudio.BLOCK_SAMPLES);
+        samples = BenchmarkAudio.noise(BenchmarkAudio.BLOCK_SAMPLES, 0L);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public FloatBuffer convert() {
+        target.clear();
+        depth.convert(pcm, bigEndian, target, BenchmarkAudio.BLOCK_SAMPLES);
+        return target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkAudio.BLOCK_SAMPLES)
+    public byte[] toPcm() {
+        depth.toPcm(samples, 0, pcm, 0, bigEndian, BenchmarkAudio.BLOCK_SAMPLES);
+        return pcm;
+    }
+}
@@ -1,7 +1,13 @@
 package com.github.manevolent.ts3j.musicbot;
 
 import com.github.manevolent.ffmpeg4j.FFmpeg;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerScheduler;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusEncoderPool;
+import com.github.manevolent.ts3j.musicbot.audio.resample.ResamplerProfiles;
+import com.github.manevolent.ts3j.musicbot.broadcast.BroadcastManager;
+import com.github.manevolent.ts3j.musicbot.cache.PacketCache;
 import com.github.manevolent.ts3j.musicbot.client.TeamspeakBot;
+import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -11,8 +17,12 @@ import org.apache.commons.io.IOUtils;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
+import java.io.InputStreamReader;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Main {
     public static void main(String[] args) throws Exception {
@@ -26,17 +36,70 @@ public final class Main {
         JsonObject defaultConfiguration = jsonObject.get("default").getAsJsonObject();
         JsonArray servers = jsonObject.get("servers").getAsJsonArray();
 
+        upgrade(defaultConfiguration);
+        for (JsonElement serverElement : servers) upgrade(serverElement.getAsJsonObject());
+
+        // Settings added since the configuration was written take the values the bundled one has
+        JsonObject bundledConfiguration = new JsonParser().parse(
+                new InputStreamReader(Main.class.getResourceAsStream("/config.json"))
+        ).getAsJsonObject();
+        ConfigurationHelper.merge(bundledConfiguration.get("default").getAsJsonObject(), defaultConfiguration);
+
+        // One pool of mixer workers is shared by every bot
+        MixerScheduler scheduler = new MixerScheduler(
+                ConfigurationHelper.get(defaultConfiguration, "mixer.scheduler.workers").getAsInt()
+        );
+
+        // One pool of Opus encoder workers is shared by every bot, too
+        OpusEncoderPool encoderPool = new OpusEncoderPool(
+                ConfigurationHelper.get(defaultConfiguration, "opus.encoder.workers").getAsInt(),
+                Math.max(1, 2 * servers.size()) // One pending encode per bot, and per broadcast, at most
+        );
+
+        // Packets of finished broadcasts are kept on disk for replays
+        PacketCache packetCache = PacketCache.fromJson(defaultConfiguration);
+
+        // Bots playing the same stream share one pipeline and encoder
+        BroadcastManager broadcastManager =
+                new BroadcastManager(defaultConfiguration, scheduler, encoderPool, packetCache);
+
+        // Queued tracks are opened ahead of time on a few threads shared by every bot, off the mixer and client threads
+        AtomicInteger prefetchThreads = new AtomicInteger(0);
+        ExecutorService prefetchExecutor = Executors.newFixedThreadPool(
+                Math.max(1, ConfigurationHelper.get(defaultConfiguration, "queue.workers").getAsInt()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Prefetch-" + prefetchThreads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+
+        // Servers on the same resampler profile share its cost measurements
+        ResamplerProfiles resamplerProfiles = new ResamplerProfiles();
+
         List<TeamspeakBot> bots = new LinkedList<>();
 
         for (JsonElement serverElement : servers) {
             JsonObject serverObject = serverElement.getAsJsonObject();
-            bots.add(new TeamspeakBot(defaultConfiguration, serverObject));
+            bots.add(new TeamspeakBot(
+                    defaultConfiguration, serverObject, scheduler, encoderPool, broadcastManager, packetCache,
+                    resamplerProfiles, prefetchExecutor
+            ));
         }
 
         for (TeamspeakBot bot : bots) bot.setRunning(true);
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             for (TeamspeakBot bot : bots) bot.setRunning(false);
+
+            prefetchExecutor.shutdownNow();
+
+            try {
+                scheduler.close();
+                encoderPool.close();
+            } catch (InterruptedException e) {
+                // Ignore
+            }
         }));
 
         Object lock = new Object();
@@ -44,4 +107,18 @@ public final class Main {
             lock.wait();
         }
     }
+
+    /**
+     * Carries settings that were renamed over from older configurations.
+     * @param configuration Default or server configuration
+     */
+    private static void upgrade(JsonObject configuration) {
+        // opus.framerate (frames per second) was replaced by opus.frametime (milliseconds per frame)
+        JsonElement opus = configuration.get("opus");
+        if (opus != null && opus.isJsonObject()) {
+            JsonObject opusObject = opus.getAsJsonObject();
+            if (opusObject.has("framerate") && !opusObject.has("frametime"))
+                opusObject.addProperty("frametime", 1000F / opusObject.get("framerate").getAsFloat());
+        }
+    }
 }
@@ -3,19 +3,56 @@ package com.github.manevolent.ts3j.musicbot.audio;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.input.AudioProvider;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
+/**
+ * Fixed-size ring buffer of float samples.
+ *
+ * Safe for exactly one producer thread (write methods) and one consumer thread (read/mix methods) without locking.
+ * Read and write positions are monotonic counters; each side only ever advances its own counter, and publishes it
+ * after the samples have been copied, so the other side never observes a slot before it is filled (or freed).
+ *
+ * A buffer may be backed by native memory instead of an array (see getDirectStore()), so that native code such as a
+ * resampler can read and write its samples in place, one contiguous region at a time.
+ */
 public class AudioBuffer {
-    private final Object resampleLock = new Object();
-    private final Object mixLock = new Object();
-
     private final int size;
-    private final float[] buffer;
+    private final float[] buffer; // null if direct
+
+    // Direct backing store, and a view of it for each side, as a view's position can't be shared
+    private final ByteBuffer directStore;
+    private final FloatBuffer writeView, readView;
+    private float[] transferBuffer; // Staging for providers, which read into arrays (producer side)
 
-    private volatile int positon;
+    // Total samples ever written/read.  Owned by the producer and consumer, respectively.
+    private volatile long writePosition = 0L;
+    private volatile long readPosition = 0L;
 
     public AudioBuffer(int size) {
-        this.buffer = new float[this.size = size];
+        this(size, false);
+    }
+
+    /**
+     * @param size Size, in samples
+     * @param direct true to back the buffer with native memory, false for an array
+     */
+    public AudioBuffer(int size, boolean direct) {
+        if (size <= 0) throw new IllegalArgumentException("invalid size: " + size);
+
+        this.size = size;
+
+        if (direct) {
+            this.buffer = null;
+            this.directStore = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+            this.writeView = directStore.asFloatBuffer();
+            this.readView = directStore.asFloatBuffer();
+        } else {
+            this.buffer = new float[size];
+            this.directStore = null;
+            this.writeView = this.readView = null;
+        }
     }
 
     public int availableInput() {
@@ -23,38 +60,149 @@ public class AudioBuffer {
     }
 
     public int availableOutput() {
-        return positon;
+        return (int) (writePosition - readPosition);
     }
 
     public int getBufferSize() {
         return size;
     }
 
+    public boolean isDirect() {
+        return directStore != null;
+    }
+
+    /**
+     * Gets the native memory backing a direct buffer, for native code to read and write samples in place: sample i of
+     * the ring is the native-order float at byte i * 4.  Only the regions described by getWriteOffset() and
+     * getReadOffset() may be touched, by the producer and the consumer respectively.
+     * @return Backing store, or null if the buffer is backed by an array
+     */
+    public ByteBuffer getDirectStore() {
+        return directStore;
+    }
+
+    /**
+     * Gets the ring index the next sample is written to.  Producer side.
+     * @return Write offset, in samples
+     */
+    public int getWriteOffset() {
+        return index(writePosition);
+    }
+
+    /**
+     * Finds the count of samples that can be written from getWriteOffset() on before the ring wraps (or fills).
+     * Producer side.
+     * @return Contiguous free samples
+     */
+    public int getContiguousInput() {
+        return Math.min(availableInput(), size - getWriteOffset());
+    }
+
+    /**
+     * Publishes samples written in place from getWriteOffset() on.  Producer side.
+     * @param len Samples written, at most getContiguousInput()
+     */
+    public void commitWrite(int len) {
+        if (len < 0 || len > getContiguousInput()) throw new ArrayIndexOutOfBoundsException(len);
+
+        this.writePosition += len;
+    }
+
+    /**
+     * Gets the ring index the next sample is read from.  Consumer side; samples read in place are released with
+     * skip().
+     * @return Read offset, in samples
+     */
+    public int getReadOffset() {
+        return index(readPosition);
+    }
+
+    /**
+     * Finds the count of samples that can be read from getReadOffset() on before the ring wraps.  Consumer side.
+     * @return Contiguous samples
+     */
+    public int getContiguousOutput() {
+        return Math.min(availableOutput(), size - getReadOffset());
+    }
+
     public int write(AudioProvider provider, int len) throws IOException {
         if (len > provider.available()) throw new ArrayIndexOutOfBoundsException("provider");
         if (len > availableInput()) throw new ArrayIndexOutOfBoundsException();
 
-        int read = provider.read(buffer, positon, len);
-        this.positon += read;
+        long position = this.writePosition;
+
+        if (buffer == null) {
+            // Providers read into arrays, so samples go into native memory through a staging array
+            if (transferBuffer == null) transferBuffer = new float[size];
+
+            int read = provider.read(transferBuffer, 0, len);
+            if (read > 0) {
+                int index = index(position);
+                int first = Math.min(read, size - index);
+
+                store(index, transferBuffer, 0, first);
+                if (read > first) store(0, transferBuffer, first, read - first);
+
+                this.writePosition = position + read;
+            }
+
+            return read;
+        }
+
+        int index = index(position);
+        int first = Math.min(len, size - index);
+
+        int read = provider.read(buffer, index, first);
+
+        // Only wrap around if the provider filled the tail of the ring completely
+        if (read == first && len > first)
+            read += Math.max(0, provider.read(buffer, 0, len - first));
+
+        if (read > 0) this.writePosition = position + read;
 
         return read;
     }
 
     public int write(float f) {
-        if (this.size - this.positon >= 1) {
-            buffer[positon] = f;
-            this.positon++;
+        long position = this.writePosition;
+
+        if (position - readPosition < size) {
+            if (buffer != null) buffer[index(position)] = f;
+            else writeView.put(index(position), f);
+            this.writePosition = position + 1;
 
             return 1;
         } return 0;
     }
 
-
     public int write(FloatBuffer floatBuffer, int len) {
-        if (len > floatBuffer.limit()) throw new ArrayIndexOutOfBoundsException(len);
+        if (len > floatBuffer.remaining()) throw new ArrayIndexOutOfBoundsException(len);
+        if (len > availableInput()) throw new ArrayIndexOutOfBoundsException(len + " > " + availableInput());
+
+        long position = this.writePosition;
+        int index = index(position);
+        int first = Math.min(len, size - index);
+
+        if (buffer != null) {
+            floatBuffer.get(buffer, index, first);
+            if (len > first) floatBuffer.get(buffer, 0, len - first);
+        } else {
+            int limit = floatBuffer.limit();
+
+            writeView.position(index);
+            floatBuffer.limit(floatBuffer.position() + first);
+            writeView.put(floatBuffer);
+
+            if (len > first) {
+                writeView.position(0);
+                floatBuffer.limit(floatBuffer.position() + (len - first));
+                writeView.put(floatBuffer);
+            }
+
+            floatBuffer.limit(limit);
+        }
 
-        floatBuffer.get(buffer, this.positon, len);
-        this.positon += len;
+        this.writePosition = position + len;
 
         return len;
     }
@@ -66,50 +214,119 @@ public class AudioBuffer {
     public int write(float[] in, int offs, int len) {
         if (len > in.length-offs) throw new ArrayIndexOutOfBoundsException(len);
 
-        int i;
-        for (i = 0; i < len && this.positon +i < buffer.length; i ++)
-            buffer[this.positon +i] = in[i+offs];
+        int x = Math.min(len, availableInput());
+        if (x <= 0) return 0;
+
+        long position = this.writePosition;
+        int index = index(position);
+        int first = Math.min(x, size - index);
+
+        store(index, in, offs, first);
+        if (x > first) store(0, in, offs + first, x - first);
 
-        this.positon += i;
+        this.writePosition = position + x;
 
-        return i;
+        return x;
     }
 
     public int mix(float[] out, int offs, int len) {
-        int x = Math.min(len, this.positon);
+        int x = Math.min(len, availableOutput());
         if (x <= 0) return 0;
 
-        for (int i = 0; i < x; i ++) out[i+offs] = out[i+offs] + buffer[i];
-
-        // Resize buffer
-        this.positon -= x;
+        long position = this.readPosition;
+        int index = index(position);
+        int first = Math.min(x, size - index);
 
-        // Reclaim free bytes
-        if (this.positon > 0) {
-            System.arraycopy(buffer, x, buffer, 0, this.positon);
+        if (buffer != null) {
+            for (int i = 0; i < first; i ++) out[i+offs] += buffer[index+i];
+            for (int i = first; i < x; i ++) out[i+offs] += buffer[i-first];
         } else {
-            this.positon = 0;
+            for (int i = 0; i < first; i ++) out[i+offs] += readView.get(index+i);
+            for (int i = first; i < x; i ++) out[i+offs] += readView.get(i-first);
         }
 
+        this.readPosition = position + x;
+
         return x;
     }
 
     public int read(float[] out, int offs, int len) {
-        int x = Math.min(len, this.positon);
+        int x = Math.min(len, availableOutput());
         if (x <= 0) return 0;
 
-        for (int i = 0; i < x; i ++) out[i+offs] = buffer[i];
+        long position = this.readPosition;
+        int index = index(position);
+        int first = Math.min(x, size - index);
+
+        load(index, out, offs, first);
+        if (x > first) load(0, out, offs + first, x - first);
+
+        this.readPosition = position + x;
 
-        // Resize buffer
-        this.positon -= x;
+        return x;
+    }
 
-        // Reclaim free bytes
-        if (this.positon > 0) {
-            System.arraycopy(buffer, x, buffer, 0, this.positon);
+    public int read(FloatBuffer out, int len) {
+        int x = Math.min(Math.min(len, out.remaining()), availableOutput());
+        if (x <= 0) return 0;
+
+        long position = this.readPosition;
+        int index = index(position);
+        int first = Math.min(x, size - index);
+
+        if (buffer != null) {
+            out.put(buffer, index, first);
+            if (x > first) out.put(buffer, 0, x - first);
         } else {
-            this.positon = 0;
+            readView.limit(index + first).position(index);
+            out.put(readView);
+
+            if (x > first) {
+                readView.limit(x - first).position(0);
+                out.put(readView);
+            }
+
+            readView.limit(size);
         }
 
+        this.readPosition = position + x;
+
         return x;
     }
+
+    /**
+     * Discards samples without reading them.  Consumer side, like read().
+     * @param len Maximum samples to discard
+     * @return Samples discarded
+     */
+    public int skip(int len) {
+        int x = Math.min(len, availableOutput());
+        if (x <= 0) return 0;
+
+        this.readPosition += x;
+
+        return x;
+    }
+
+    private void store(int index, float[] in, int offs, int len) {
+        if (buffer != null) {
+            System.arraycopy(in, offs, buffer, index, len);
+        } else {
+            writeView.position(index);
+            writeView.put(in, offs, len);
+        }
+    }
+
+    private void load(int index, float[] out, int offs, int len) {
+        if (buffer != null) {
+            System.arraycopy(buffer, index, out, offs, len);
+        } else {
+            readView.position(index);
+            readView.get(out, offs, len);
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % size);
+    }
 }
@@ -0,0 +1,59 @@
+package com.github.manevolent.ts3j.musicbot.audio.kernel;
+
+/**
+ * Bulk float sample operations used by the mixer and filters.  Implementations may use SIMD instructions; all
+ * operations are in-place over [offs, offs + len).
+ */
+public interface AudioKernel {
+
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Sets the samples to zero.
+     * @param buffer Sample buffer
+     * @param offs Offset to start at
+     * @param len Count of samples
+     */
+    void clear(float[] buffer, int offs, int len);
+
+    /**
+     * Adds the source samples onto the target samples (dst += src).
+     * @param src Source sample buffer
+     * @param srcOffs Offset in the source buffer
+     * @param dst Target sample buffer
+     * @param dstOffs Offset in the target buffer
+     * @param len Count of samples
+     */
+    void accumulate(float[] src, int srcOffs, float[] dst, int dstOffs, int len);
+
+    /**
+     * Multiplies the samples by a constant factor.
+     * @param buffer Sample buffer
+     * @param offs Offset to start at
+     * @param len Count of samples
+     * @param factor Factor to multiply by
+     */
+    void scale(float[] buffer, int offs, int len, float factor);
+
+    /**
+     * Limits the samples to the range [min, max].
+     * @param buffer Sample buffer
+     * @param offs Offset to start at
+     * @param len Count of samples
+     * @param min Lowest permitted value
+     * @param max Highest permitted value
+     */
+    void clamp(float[] buffer, int offs, int len, float min, float max);
+
+    /**
+     * Finds the largest absolute sample value.
+     * @param buffer Sample buffer
+     * @param offs Offset to start at
+     * @param len Count of samples
+     * @return Peak amplitude, or 0 if len is 0
+     */
+    float peak(float[] buffer, int offs, int len);
+
+}
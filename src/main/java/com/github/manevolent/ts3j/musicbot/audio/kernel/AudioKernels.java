@@ -0,0 +1,50 @@
+package com.github.manevolent.ts3j.musicbot.audio.kernel;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selects the audio kernel once per JVM.
+ *
+ * The SIMD kernel is compiled separately (src/main/vector, JDK 17+) and only loads when the JVM was started with
+ * --add-modules jdk.incubator.vector; otherwise the scalar kernel is used.  Set -Dmusicbot.kernel=scalar to force
+ * the fallback.
+ */
+public final class AudioKernels {
+    private static final String VECTOR_KERNEL_CLASS =
+            "com.github.manevolent.ts3j.musicbot.audio.kernel.VectorAudioKernel";
+
+    private static final AudioKernel KERNEL = select();
+
+    private AudioKernels() {
+
+    }
+
+    public static AudioKernel get() {
+        return KERNEL;
+    }
+
+    private static AudioKernel select() {
+        AudioKernel kernel = null;
+
+        if (!"scalar".equalsIgnoreCase(System.getProperty("musicbot.kernel"))) {
+            try {
+                kernel = Class.forName(VECTOR_KERNEL_CLASS)
+                        .asSubclass(AudioKernel.class)
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ClassNotFoundException e) {
+                // Not compiled in (built on a JDK older than 17)
+            } catch (Throwable e) {
+                // Typically NoClassDefFoundError: jdk.incubator.vector wasn't added to the module graph
+                Logger.getGlobal().log(Level.FINE, "Vector audio kernel unavailable", e);
+            }
+        }
+
+        if (kernel == null) kernel = new ScalarAudioKernel();
+
+        Logger.getGlobal().info("Using audio kernel: " + kernel.getName());
+
+        return kernel;
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.manevolent.ts3j.musicbot.audio.kernel;
+
+import java.util.Arrays;
+
+/**
+ * Plain loop implementation; the fallback when the Vector API is unavailable.
+ */
+public class ScalarAudioKernel implements AudioKernel {
+    @Override
+    public void clear(float[] buffer, int offs, int len) {
+        Arrays.fill(buffer, offs, offs + len, 0f);
+    }
+
+    @Override
+    public void accumulate(float[] src, int srcOffs, float[] dst, int dstOffs, int len) {
+        for (int i = 0; i < len; i ++) dst[dstOffs + i] += src[srcOffs + i];
+    }
+
+    @Override
+    public void scale(float[] buffer, int offs, int len, float factor) {
+        for (int i = offs; i < offs + len; i ++) buffer[i] *= factor;
+    }
+
+    @Override
+    public void clamp(float[] buffer, int offs, int len, float min, float max) {
+        for (int i = offs; i < offs + len; i ++) buffer[i] = Math.max(min, Math.min(max, buffer[i]));
+    }
+
+    @Override
+    public float peak(float[] buffer, int offs, int len) {
+        float peak = 0f;
+        for (int i = offs; i < offs + len; i ++) peak = Math.max(peak, Math.abs(buffer[i]));
+        return peak;
+    }
+}
@@ -1,10 +1,10 @@
 package com.github.manevolent.ts3j.musicbot.audio.mixer;
 
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.ChannelMixerFilter;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
-import com.github.manevolent.ts3j.musicbot.audio.mixer.input.AudioProvider;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MultiChannelMixerFilter;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.output.MixerSink;
-import com.github.manevolent.ts3j.musicbot.audio.player.ResampledAudioPlayer;
 
 import java.util.*;
 import java.util.logging.Logger;
@@ -15,11 +15,17 @@ public abstract class AbstractMixer implements Mixer {
     private final float audioSampleRate;
     private final int audioChannels;
 
-    private final List<MixerSink> sinks = Collections.synchronizedList(new LinkedList<>());
-    private final List<MixerChannel> channels = Collections.synchronizedList(new LinkedList<>());
-    private final List<List<MixerFilter>> filters = Collections.synchronizedList(new LinkedList<>());
+    /**
+     * Copy-on-write membership.  Each array is immutable once published; changes copy the array under the matching
+     * lock and publish the copy, so the mixer thread iterates plain arrays without allocating or locking.
+     */
+    private volatile MixerSink[] sinks = new MixerSink[0];
+    private volatile MixerChannel[] channels = new MixerChannel[0];
+    private volatile MultiChannelMixerFilter[] filters = new MultiChannelMixerFilter[0];
 
+    private final Object sinkLock = new Object();
     private final Object channelLock = new Object();
+    private final Object filterLock = new Object();
 
     public AbstractMixer(int bufferSize, float audioSampleRate, int audioChannels) {
         this.bufferSize = bufferSize;
@@ -28,9 +34,33 @@ public abstract class AbstractMixer implements Mixer {
         this.audioChannels = audioChannels;
     }
 
+    /**
+     * Gets the current sink snapshot.  The array must not be modified.
+     * @return Sinks
+     */
+    protected final MixerSink[] getSinkSnapshot() {
+        return sinks;
+    }
+
+    /**
+     * Gets the current channel snapshot.  The array must not be modified.
+     * @return Channels
+     */
+    protected final MixerChannel[] getChannelSnapshot() {
+        return channels;
+    }
+
+    /**
+     * Gets the current filter snapshot, in processing order.  The array must not be modified.
+     * @return Filters
+     */
+    protected final MultiChannelMixerFilter[] getFilterSnapshot() {
+        return filters;
+    }
+
     @Override
     public Collection<MixerSink> getSinks() {
-        return Collections.unmodifiableCollection(sinks);
+        return Collections.unmodifiableList(Arrays.asList(sinks));
     }
 
     @Override
@@ -38,16 +68,48 @@ public abstract class AbstractMixer implements Mixer {
         if (filterChannels.length != getAudioChannels())
             throw new IllegalArgumentException("invalid filter count: channel mismatch");
 
-        List<MixerFilter> filterList = Collections.unmodifiableList(Arrays.asList(filterChannels));
+        ChannelMixerFilter filter = new ChannelMixerFilter(filterChannels);
+
+        addFilter(filter);
 
-        filters.add(filterList);
+        return filter.getFilters();
+    }
+
+    @Override
+    public MultiChannelMixerFilter addFilter(MultiChannelMixerFilter filter) {
+        synchronized (filterLock) {
+            filters = append(filters, filter);
+        }
 
-        return filterList;
+        return filter;
     }
 
     @Override
     public boolean removeFilter(List<MixerFilter> filterList) {
-        return filters.remove(filterList);
+        synchronized (filterLock) {
+            MultiChannelMixerFilter[] filters = this.filters;
+
+            for (MultiChannelMixerFilter filter : filters) {
+                if (filter instanceof ChannelMixerFilter && ((ChannelMixerFilter) filter).getFilters() == filterList) {
+                    this.filters = remove(filters, filter);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeFilter(MultiChannelMixerFilter filter) {
+        synchronized (filterLock) {
+            MultiChannelMixerFilter[] filters = this.filters;
+            MultiChannelMixerFilter[] removed = remove(filters, filter);
+            if (removed == filters) return false;
+
+            this.filters = removed;
+            return true;
+        }
     }
 
     @Override
@@ -56,106 +118,115 @@ public abstract class AbstractMixer implements Mixer {
                 sink.getAudioFormat().getChannels() != getAudioChannels())
             throw new IllegalArgumentException("sink format unacceptable");
 
-        if (sinks.add(sink)) {
-            if (isRunning()) sink.start();
-            else sink.stop();
-
-            return true;
+        synchronized (sinkLock) {
+            sinks = append(sinks, sink);
         }
 
-        return false;
+        if (isRunning()) sink.start();
+        else sink.stop();
+
+        return true;
     }
 
     @Override
     public boolean removeSink(MixerSink sink) {
-        if (sinks.remove(sink)) {
-            sink.stop();
-            return true;
-        } else return false;
+        synchronized (sinkLock) {
+            MixerSink[] sinks = this.sinks;
+            MixerSink[] removed = remove(sinks, sink);
+            if (removed == sinks) return false;
+
+            this.sinks = removed;
+        }
+
+        sink.stop();
+        return true;
     }
 
     @Override
     public Collection<MixerChannel> getChannels() {
-        return Collections.unmodifiableCollection(channels);
+        return Collections.unmodifiableList(Arrays.asList(channels));
     }
 
     @Override
     public boolean addChannel(MixerChannel channel) {
-        synchronized (channelLock) {
-            boolean added;
-
-            if (channel.getSampleRate() != getAudioSampleRate() || channel.getChannels() != getAudioChannels())
-                throw new IllegalArgumentException("format mismatch");
+        if (channel.getSampleRate() != getAudioSampleRate() || channel.getChannels() != getAudioChannels())
+            throw new IllegalArgumentException("format mismatch");
 
-            synchronized (channelLock) {
-                added = channels.add(channel);
-            }
+        synchronized (channelLock) {
+            channels = append(channels, channel);
 
             if (!isPlaying()) setRunning(true);
 
-            if (added) {
-                // Events...
-            }
+            // Events...
 
-            return added;
+            return true;
         }
     }
 
     @Override
     public boolean removeChannel(MixerChannel channel) {
-        boolean removed, stopped;
+        boolean stopped;
 
         synchronized (channelLock) {
-            boolean wasPlaying = isPlaying();
-            removed = channels.remove(channel);
-            stopped = removed && wasPlaying && !isPlaying();
+            MixerChannel[] channels = this.channels;
+            MixerChannel[] removed = remove(channels, channel);
+            if (removed == channels) return false;
+
+            this.channels = removed;
+            stopped = channels.length > 0 && removed.length == 0;
         }
 
         if (stopped) setRunning(false);
 
-        if (removed) {
-            // Events...
-        }
+        // Events...
 
-        return removed;
+        return true;
     }
 
     @Override
-    public Collection<List<MixerFilter>> getFilters() {
-        return Collections.unmodifiableCollection(filters);
+    public Collection<MultiChannelMixerFilter> getFilters() {
+        return Collections.unmodifiableList(Arrays.asList(filters));
     }
 
     @Override
     public boolean isRunning() {
-        return getSinks().stream().anyMatch(MixerSink::isRunning);
+        for (MixerSink sink : sinks)
+            if (sink.isRunning()) return true;
+
+        return false;
     }
 
     @Override
     public boolean isPlaying() {
-        return getChannels().size() > 0;
+        return channels.length > 0;
+    }
+
+    @Override
+    public boolean isStarving() {
+        for (MixerSink sink : sinks)
+            if (sink.isRunning() && sink.isStarving()) return true;
+
+        return false;
     }
 
     @Override
     public int available() {
         // Find out how much the sinks can flush down right now
-        int sinkAvailable = Math.min(
-                getBufferSize(),
-                getSinks().stream().filter(MixerSink::isRunning).mapToInt(MixerSink::availableInput).min().orElse(0)
-        );
+        int sinkAvailable = Integer.MAX_VALUE;
+        for (MixerSink sink : sinks)
+            if (sink.isRunning()) sinkAvailable = Math.min(sinkAvailable, sink.availableInput());
 
-        // Shortcut
+        // Shortcut (also covers no running sinks at all)
+        sinkAvailable = Math.min(getBufferSize(), sinkAvailable == Integer.MAX_VALUE ? 0 : sinkAvailable);
         if (sinkAvailable <= 0) return 0;
 
         // Get the count of samples available in each channel, taking the minimum first
-        int channelAvailable = getChannels()
-                .stream()
-                .filter(MixerChannel::isPlaying)
-                .mapToInt(AudioProvider::available)
-                .min()
-                .orElse(0);
+        int channelAvailable = Integer.MAX_VALUE;
+        for (MixerChannel channel : channels)
+            if (channel.isPlaying()) channelAvailable = Math.min(channelAvailable, channel.available());
 
         // Shortcut
-        if (channelAvailable <= 0) return 0;
+        if (channelAvailable == Integer.MAX_VALUE || channelAvailable <= 0) return 0;
 
         // Attempt to flush down the minimum amount of samples that all parties agree on
         return Math.min(sinkAvailable, channelAvailable);
@@ -187,15 +258,42 @@ public abstract class AbstractMixer implements Mixer {
     public boolean setRunning(boolean running) {
         if (running) {
             Logger.getGlobal().info("Starting mixer...");
-            return getSinks().stream().filter(x -> !x.isRunning()).allMatch(MixerSink::start);
+
+            for (MixerSink sink : sinks)
+                if (!sink.isRunning() && !sink.start()) return false;
         } else {
             Logger.getGlobal().info("Stopping mixer...");
-            boolean stopped = getSinks().stream().filter(MixerSink::isRunning).allMatch(MixerSink::stop);
+
+            for (MixerSink sink : sinks)
+                if (sink.isRunning() && !sink.stop()) return false;
 
             // If stopped, reset all filters.
-            if (stopped) filters.forEach(filters -> filters.forEach(MixerFilter::reset));
+            for (MultiChannelMixerFilter filter : filters)
+                filter.reset();
+        }
 
-            return stopped;
+        return true;
+    }
+
+    private static <T> T[] append(T[] array, T element) {
+        T[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = element;
+        return copy;
+    }
+
+    /**
+     * Removes the first occurrence of an element.
+     * @return Copy without the element, or the same array if it was not present
+     */
+    private static <T> T[] remove(T[] array, Object element) {
+        for (int i = 0; i < array.length; i ++) {
+            if (array[i].equals(element)) {
+                T[] copy = Arrays.copyOf(array, array.length - 1);
+                System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+                return copy;
+            }
         }
+
+        return array;
     }
 }
@@ -1,22 +1,36 @@
 package com.github.manevolent.ts3j.musicbot.audio.mixer;
 
-import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernel;
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernels;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MultiChannelMixerFilter;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.PacketMixerChannel;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.output.MixerSink;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.output.PacketMixerSink;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.stats.MixerStatistics;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class BufferedMixer extends AbstractMixer {
     /**
-     * Internal sample buffer
+     * Internal sample buffers (interleaved)
      */
-    private final float[] buffer, mixBuffer, filterBuffer;
+    private final float[] buffer, mixBuffer;
+
+    /**
+     * Planar filter buffers, one per channel
+     */
+    private final float[][] planes;
+
+    /**
+     * Packet passed through from a channel to the sinks
+     */
+    private final byte[] packetBuffer = new byte[PacketMixerChannel.MAXIMUM_PACKET_SIZE];
+
+    private final AudioKernel kernel = AudioKernels.get();
+
+    private final MixerStatistics statistics = new MixerStatistics();
 
     private long position = 0L;
 
@@ -25,7 +39,15 @@ public class BufferedMixer extends AbstractMixer {
 
         this.buffer = new float[bufferSize];
         this.mixBuffer = new float[bufferSize];
-        this.filterBuffer = new float[bufferSize / audioChannels];
+        this.planes = new float[audioChannels][bufferSize / audioChannels];
+    }
+
+    /**
+     * Gets the tick timings recorded by this mixer.
+     * @return Mixer statistics
+     */
+    public MixerStatistics getStatistics() {
+        return statistics;
     }
 
     @Override
@@ -33,8 +55,14 @@ public class BufferedMixer extends AbstractMixer {
         if (!isPlaying())
             return false;
 
+        long tickStart = System.nanoTime(), start;
+
+        // Pass already encoded packets straight to the sinks when nothing needs them as samples
+        PacketMixerChannel passthrough = getPassthroughChannel();
+        boolean passedThrough = passthrough != null && processPackets(passthrough);
+
         // Plan for mixer input, ensuring the available sample count doesn't overflow the mixer
-        int len = Math.min(buffer.length, available());
+        int len = passedThrough ? 0 : Math.min(buffer.length, available());
 
         // If no samples are ready, we don't bother with this, but we do signal that we must
         // continue playing samples.
@@ -43,28 +71,24 @@ public class BufferedMixer extends AbstractMixer {
                 throw new ArrayIndexOutOfBoundsException(len + " > " + buffer.length);
 
             // Reset buffers
-            for (int i = 0; i < len; i++) buffer[i] = 0f;
-
-            Iterator<MixerChannel> channelIterator = getChannels().iterator();
-            MixerChannel channel;
-            while (channelIterator.hasNext()) {
-                channel = channelIterator.next();
-                if (channel == null) continue;
+            kernel.clear(buffer, 0, len);
 
+            for (MixerChannel channel : getChannelSnapshot()) {
                 try {
                     // Remove if the player is complete, otherwise mix
                     if (!channel.isPlaying()) {
                         removeChannel(channel);
                     } else {
                         // Reset mixing buffer
-                        for (int i = 0; i < len; i++) mixBuffer[i] = 0f;
+                        kernel.clear(mixBuffer, 0, len);
 
                         // Read samples from channel
+                        start = System.nanoTime();
                         int read = channel.read(mixBuffer, 0, len);
+                        statistics.getChannelReadTime().record(System.nanoTime() - start);
 
                         // Perform actual mixing
-                        for (int i = 0; i < read; i ++)
-                            buffer[i] += mixBuffer[i];
+                        kernel.accumulate(mixBuffer, 0, buffer, 0, read);
                     }
                 } catch (Throwable e) {
                     Logger.getGlobal().log(Level.SEVERE, "Problem playing audio on channel", e);
@@ -72,43 +96,140 @@ public class BufferedMixer extends AbstractMixer {
                 }
             }
 
-            // Manipulate audio based on filters
-            int channels = getAudioChannels();
-            int samplesPerChannel = len / channels;
-            for (int ch = 0; ch < channels; ch ++) {
-                // Copy in buffer for channel
-                for (int smp = 0; smp < samplesPerChannel; smp ++) {
-                    filterBuffer[smp] = buffer[smp * channels];
-                }
+            // Manipulate audio based on filters.  Filters work on planar samples, so the mixed block is split
+            // into one plane per channel once, run through the whole chain, and interleaved again for the sinks.
+            MultiChannelMixerFilter[] filters = getFilterSnapshot();
+            if (filters.length > 0) {
+                start = System.nanoTime();
 
-                // Filter the filter buffer
-                int finalCh = ch; // hack
-                getFilters().stream().map(x -> x.get(finalCh)).forEach(filter -> {
-                    filter.process(filterBuffer, 0, samplesPerChannel);
-                });
+                int channels = getAudioChannels();
+                int samplesPerChannel = len / channels;
 
-                // Copy back in buffer for channel
-                for (int smp = 0; smp < samplesPerChannel; smp ++) {
-                    buffer[smp * channels] = filterBuffer[smp];
-                }
+                deinterleave(buffer, planes, channels, samplesPerChannel);
+
+                for (MultiChannelMixerFilter filter : filters)
+                    filter.process(planes, 0, samplesPerChannel);
+
+                interleave(planes, buffer, channels, samplesPerChannel);
+
+                statistics.getFilterTime().record(System.nanoTime() - start);
             }
 
             // Write to sinks (only those that are running and can accept these samples, though)
             // Note that available() will limit "len" to the sink's availability
-            for (MixerSink sink : getSinks())
+            start = System.nanoTime();
+
+            for (MixerSink sink : getSinkSnapshot())
                 if (sink.isRunning() && sink.availableInput() >= len) sink.write(buffer, len);
 
+            statistics.getSinkTime().record(System.nanoTime() - start);
+
             position += len;
+            statistics.addSamplesMixed(len);
         }
 
         // Kill the mixer, ensure it stops if necessary after we've processed all the buffers/channels
         //
-        getChannels().stream().filter(x -> !x.isPlaying()).forEach(this::removeChannel);
+        for (MixerChannel channel : getChannelSnapshot())
+            if (!channel.isPlaying()) removeChannel(channel);
+
+        statistics.getTickTime().record(System.nanoTime() - tickStart);
 
         // Find if the mixer is still playing
         return isPlaying();
     }
 
+    /**
+     * Finds the channel whose packets may skip the PCM pipeline this tick: the only channel, with packets, while
+     * every filter is bypassable and every sink is running and takes packets.
+     * @return Channel, or null if the tick has to be mixed
+     */
+    private PacketMixerChannel getPassthroughChannel() {
+        MixerChannel[] channels = getChannelSnapshot();
+        if (channels.length != 1 || !(channels[0] instanceof PacketMixerChannel)) return null;
+
+        for (MultiChannelMixerFilter filter : getFilterSnapshot())
+            if (!filter.isBypassable()) return null;
+
+        MixerSink[] sinks = getSinkSnapshot();
+        if (sinks.length == 0) return null;
+
+        for (MixerSink sink : sinks)
+            if (!(sink instanceof PacketMixerSink) || !sink.isRunning()) return null;
+
+        return (PacketMixerChannel) channels[0];
+    }
+
+    /**
+     * Moves packets from a channel to the sinks, as many as the sinks have room for.
+     * @return true if the tick was handled as packets, false if the next packet has to be mixed as samples instead
+     */
+    private boolean processPackets(PacketMixerChannel channel) {
+        MixerSink[] sinks = getSinkSnapshot();
+
+        // Only the sinks limit this; the channel's sample buffer isn't used for packets
+        int len = buffer.length;
+        for (MixerSink sink : sinks) len = Math.min(len, sink.availableInput());
+
+        try {
+            int samples = channel.peekPacket();
+            if (samples < 0) return true; // Finished; removed below
+
+            if (!acceptsPacket(sinks, samples)) return false; // Including samples that aren't packets (0)
+
+            long start = System.nanoTime();
+
+            while (samples > 0 && samples <= len) {
+                // Every sink has to take the packet, or none of them does
+                boolean ready = true;
+                for (MixerSink sink : sinks) ready &= ((PacketMixerSink) sink).preparePacket();
+                if (!ready) break;
+
+                int length = channel.readPacket(packetBuffer);
+
+                for (MixerSink sink : sinks)
+                    ((PacketMixerSink) sink).writePacket(packetBuffer, length, samples);
+
+                len -= samples;
+                position += samples;
+                statistics.addSamplesMixed(samples);
+
+                samples = channel.peekPacket();
+                if (samples > 0 && !acceptsPacket(sinks, samples)) break; // Mixed as samples from the next tick
+            }
+
+            statistics.getSinkTime().record(System.nanoTime() - start);
+        } catch (Throwable e) {
+            Logger.getGlobal().log(Level.SEVERE, "Problem passing packets through from channel", e);
+            removeChannel(channel);
+        }
+
+        return true;
+    }
+
+    private static boolean acceptsPacket(MixerSink[] sinks, int samples) {
+        for (MixerSink sink : sinks)
+            if (!((PacketMixerSink) sink).acceptsPacket(samples)) return false;
+
+        return true;
+    }
+
+    private static void deinterleave(float[] interleaved, float[][] planes, int channels, int samplesPerChannel) {
+        for (int ch = 0; ch < channels; ch ++) {
+            float[] plane = planes[ch];
+            for (int smp = 0; smp < samplesPerChannel; smp ++)
+                plane[smp] = interleaved[(smp * channels) + ch];
+        }
+    }
+
+    private static void interleave(float[][] planes, float[] interleaved, int channels, int samplesPerChannel) {
+        for (int ch = 0; ch < channels; ch ++) {
+            float[] plane = planes[ch];
+            for (int smp = 0; smp < samplesPerChannel; smp ++)
+                interleaved[(smp * channels) + ch] = plane[smp];
+        }
+    }
+
     @Override
     public float getPositionInSeconds() {
         return (float)position / (float)(getAudioChannels() * getAudioSampleRate());
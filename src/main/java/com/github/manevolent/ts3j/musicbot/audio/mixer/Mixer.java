@@ -1,6 +1,7 @@
 package com.github.manevolent.ts3j.musicbot.audio.mixer;
 
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MultiChannelMixerFilter;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.output.MixerSink;
 
@@ -33,10 +34,18 @@ public interface Mixer {
     boolean removeChannel(MixerChannel channel);
 
     /**
-     * Gets an immutable list of filters in the mixer.
+     * Gets an immutable list of filters in the mixer, in processing order.
      * @return Mixer filters
      */
-    Collection<List<MixerFilter>> getFilters();
+    Collection<MultiChannelMixerFilter> getFilters();
+    MultiChannelMixerFilter addFilter(MultiChannelMixerFilter filter);
+    boolean removeFilter(MultiChannelMixerFilter filter);
+
+    /**
+     * Adds a set of mono filters, one per audio channel, as a single filter stage.
+     * @param channel Filters, indexed by channel
+     * @return Immutable list of the filters, used to remove the stage with removeFilter(List)
+     */
     List<MixerFilter> addFilter(MixerFilter... channel);
     boolean removeFilter(List<MixerFilter> filterList);
 
@@ -54,6 +63,12 @@ public interface Mixer {
      */
     boolean isPlaying();
 
+    /**
+     * Finds if any running sink is below its low watermark, and the mixer should tick sooner to refill it.
+     * @return true if starving, false otherwise
+     */
+    boolean isStarving();
+
     /**
      * Finds the number of available samples on the mixer.
      * @return Available samples on the mixer.
@@ -0,0 +1,188 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer;
+
+import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces mixer ticks against absolute nanosecond deadlines.
+ *
+ * Waiting parks the thread until shortly before the deadline and spins the remainder, since parkNanos/sleep alone
+ * routinely overshoot by tens of microseconds to milliseconds.  When a tick runs late, the drift correction factor
+ * decides how much of the lateness is made up by the following ticks (1 = all of it, 0 = none); if the clock falls
+ * further behind than the maximum lag (e.g. after a GC pause) it resynchronizes instead of bursting through the
+ * missed ticks.
+ *
+ * Not thread-safe: a clock must only be advanced by one thread at a time.  Statistics may be read from any thread.
+ */
+public class MixerClock {
+    private final long spinNanos;
+    private final long maxLagNanos;
+    private final double driftCorrection;
+
+    private long deadline;
+    private boolean started = false;
+
+    // Statistics
+    private volatile long ticks = 0L, overruns = 0L, resyncs = 0L;
+    private volatile long lastJitter = 0L, maxJitter = 0L, totalJitter = 0L;
+    private volatile long lastOverrun = 0L, maxOverrun = 0L;
+
+    /**
+     * @param spinNanos Time before each deadline to busy-wait instead of park, in nanoseconds
+     * @param maxLagNanos Lateness after which the clock resynchronizes, in nanoseconds
+     * @param driftCorrection Fraction [0,1] of a late tick's lateness that is recovered by later ticks
+     */
+    public MixerClock(long spinNanos, long maxLagNanos, double driftCorrection) {
+        if (spinNanos < 0) throw new IllegalArgumentException("invalid spin: " + spinNanos);
+        if (maxLagNanos < 0) throw new IllegalArgumentException("invalid max lag: " + maxLagNanos);
+        if (driftCorrection < 0D || driftCorrection > 1D)
+            throw new IllegalArgumentException("invalid drift correction: " + driftCorrection);
+
+        this.spinNanos = spinNanos;
+        this.maxLagNanos = maxLagNanos;
+        this.driftCorrection = driftCorrection;
+    }
+
+    /**
+     * Forgets the current schedule; the next await() measures its interval from the time it is called.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    /**
+     * Waits until the next tick, one interval after the previous tick's deadline.
+     * @param intervalNanos Tick interval, in nanoseconds
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public void await(long intervalNanos) throws InterruptedException {
+        long deadline = next(intervalNanos);
+
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > spinNanos) {
+            LockSupport.parkNanos(this, remaining - spinNanos);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+
+        while (System.nanoTime() - deadline < 0) {
+            // Spin
+        }
+
+        recordWake(deadline);
+    }
+
+    /**
+     * Advances the schedule by one interval without waiting, applying drift correction and the catch-up bound.
+     * Used by callers that do their own waiting, such as the MixerScheduler.
+     * @param intervalNanos Tick interval, in nanoseconds
+     * @return Deadline of the next tick, in System.nanoTime() terms
+     */
+    public long next(long intervalNanos) {
+        long now = System.nanoTime();
+
+        if (!started) {
+            deadline = now;
+            started = true;
+        }
+
+        deadline += intervalNanos;
+
+        long late = now - deadline;
+        if (late > 0) {
+            overruns++;
+            lastOverrun = late;
+            if (late > maxOverrun) maxOverrun = late;
+
+            if (late > maxLagNanos) {
+                // Too far behind to catch up; start over from now
+                resyncs++;
+                deadline = now;
+            } else {
+                deadline += (long) (late * (1D - driftCorrection));
+            }
+        }
+
+        return deadline;
+    }
+
+    /**
+     * Records that a tick started, measuring its jitter against the deadline returned by next().
+     * @param deadline Deadline of the tick
+     */
+    public void recordWake(long deadline) {
+        long jitter = System.nanoTime() - deadline;
+        lastJitter = jitter;
+        if (jitter > maxJitter) maxJitter = jitter;
+        totalJitter += jitter;
+        ticks++;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Gets the count of ticks whose deadline had already passed when they were awaited.
+     * @return Overrun count
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Gets the count of times the clock fell behind by more than the maximum lag and resynchronized.
+     * @return Resync count
+     */
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Gets the wake-up error of the last tick, in nanoseconds.
+     * @return Jitter
+     */
+    public long getLastJitter() {
+        return lastJitter;
+    }
+
+    public long getMaxJitter() {
+        return maxJitter;
+    }
+
+    public double getAverageJitter() {
+        long ticks = this.ticks;
+        return ticks > 0 ? (double) totalJitter / (double) ticks : 0D;
+    }
+
+    public long getLastOverrun() {
+        return lastOverrun;
+    }
+
+    public long getMaxOverrun() {
+        return maxOverrun;
+    }
+
+    public long getSpinNanos() {
+        return spinNanos;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    public double getDriftCorrection() {
+        return driftCorrection;
+    }
+
+    public static MixerClock fromJson(JsonObject defaultConfiguration, JsonObject serverConfiguration) {
+        return new MixerClock(
+                (long) (ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "mixer.clock.spin")
+                        .getAsDouble() * 1_000_000_000D),
+                (long) (ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "mixer.clock.catchup")
+                        .getAsDouble() * 1_000_000_000D),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "mixer.clock.drift").getAsDouble()
+        );
+    }
+}
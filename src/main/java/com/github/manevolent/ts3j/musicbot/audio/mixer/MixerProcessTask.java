@@ -6,47 +6,69 @@ import java.util.logging.Logger;
 public class MixerProcessTask implements Runnable {
     private final Mixer mixer;
     private final double runningFrequency, stoppedFrequency;
+    private final MixerClock clock;
 
     public MixerProcessTask(Mixer mixer, double runningFrequency, double stoppedFrequency) {
+        this(mixer, runningFrequency, stoppedFrequency, new MixerClock(200_000L, 100_000_000L, 1D));
+    }
+
+    public MixerProcessTask(Mixer mixer, double runningFrequency, double stoppedFrequency, MixerClock clock) {
         this.mixer = mixer;
         this.runningFrequency = runningFrequency;
         this.stoppedFrequency = stoppedFrequency;
+        this.clock = clock;
+    }
+
+    public MixerClock getClock() {
+        return clock;
     }
 
     @Override
     public void run() {
-        double runningNanosecondInterval = (1_000_000_000D / runningFrequency);
-        double stoppedNanosecondInterval = (1_000_000_000D / stoppedFrequency);
+        long runningNanosecondInterval = (long) (1_000_000_000D / runningFrequency);
+        long stoppedNanosecondInterval = (long) (1_000_000_000D / stoppedFrequency);
 
-        long wake = System.nanoTime();
+        clock.reset();
 
         while (true) {
-            if (mixer.isPlaying()) {
-                try {
-                    if (!mixer.isRunning())
-                        mixer.setRunning(true);
-
-                    mixer.processBuffer();
-                } catch (Throwable e) {
-                    Logger.getGlobal().log(Level.SEVERE, "Problem processing mixer task", e);
-                    return;
-                }
-
-                wake += runningNanosecondInterval;
-            } else {
-                if (mixer.isRunning())
-                    mixer.setRunning(false);
-
-                wake += stoppedNanosecondInterval;
+            long interval;
+
+            try {
+                interval = process(mixer) ? runningNanosecondInterval : stoppedNanosecondInterval;
+
+                // Refill a starving sink sooner
+                if (interval == runningNanosecondInterval && mixer.isStarving()) interval /= 2;
+            } catch (Throwable e) {
+                Logger.getGlobal().log(Level.SEVERE, "Problem processing mixer task", e);
+                return;
             }
 
-            long sleep = wake - System.nanoTime();
-            if (sleep > 0)
-                try {
-                    Thread.sleep(sleep / 1_000_000);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+            try {
+                clock.await(interval);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Runs one mixer tick: starts or stops the mixer to follow its channels, and processes a buffer if playing.
+     * @param mixer Mixer to tick
+     * @return true if the mixer is playing (tick at the running frequency), false otherwise
+     */
+    static boolean process(Mixer mixer) {
+        if (mixer.isPlaying()) {
+            if (!mixer.isRunning())
+                mixer.setRunning(true);
+
+            mixer.processBuffer();
+
+            return true;
+        } else {
+            if (mixer.isRunning())
+                mixer.setRunning(false);
+
+            return false;
         }
     }
 }
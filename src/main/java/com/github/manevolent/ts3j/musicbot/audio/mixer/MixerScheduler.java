@@ -0,0 +1,286 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ticks many mixers on a shared, core-sized worker pool instead of one thread per mixer.
+ *
+ * A single timer thread keeps every scheduled mixer in a deadline-ordered queue and hands each one to a
+ * work-stealing pool when its deadline arrives.  The timer only parks, never spins, so its cost doesn't grow with the
+ * number of mixers; a late wake-up is absorbed by the mixer's clock, which measures the next deadline from the missed
+ * one rather than from the wake-up.  A mixer is re-queued only after its tick completes, so a slow mixer never runs
+ * concurrently with itself or piles up ticks; its clock decides how much of the delay to recover.
+ *
+ * Each mixer has a tick budget (its slow tick threshold).  A mixer whose tick went over budget is handed to the pool
+ * that much later next time, so that when the workers are short, a bot that overruns waits rather than the bots
+ * sharing workers with it; its clock still measures from the deadline, so the delay is made up like any late tick.
+ * Reads that block on I/O (see ManagedBlockingInputStream) let the pool run other ticks on a spare thread meanwhile.
+ */
+public class MixerScheduler implements AutoCloseable {
+    private final ForkJoinPool pool;
+
+    private final PriorityQueue<ScheduledMixer> queue =
+            new PriorityQueue<>(Comparator.comparingLong(ScheduledMixer::getDueAt));
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition queueChanged = queueLock.newCondition();
+
+    private final Thread timerThread;
+    private volatile boolean running = true;
+
+    /**
+     * @param workers Worker thread count; 0 or less to use one per available processor
+     */
+    public MixerScheduler(int workers) {
+        if (workers <= 0) workers = Runtime.getRuntime().availableProcessors();
+
+        this.pool = new ForkJoinPool(
+                workers,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                (thread, e) -> Logger.getGlobal().log(Level.SEVERE, "Problem in mixer worker " + thread.getName(), e),
+                true // FIFO; ticks are independent events, never joined
+        );
+
+        this.timerThread = new Thread(this::runTimer, "MixerScheduler");
+        this.timerThread.setPriority(Thread.MAX_PRIORITY);
+        this.timerThread.start();
+    }
+
+    /**
+     * Schedules a mixer, starting with a tick as soon as possible.
+     * @param mixer Mixer to tick
+     * @param runningFrequency Tick frequency while the mixer is playing, in Hz
+     * @param stoppedFrequency Tick frequency while the mixer is idle, in Hz
+     * @param clock Clock used to advance this mixer's deadlines
+     * @param slowTickNanos Tick budget, in nanoseconds: a tick that takes longer is counted (and logged) as slow, and
+     *                      the mixer's next tick is handed to the workers later by as much as it went over
+     * @return Scheduled mixer handle, used to read statistics or cancel
+     */
+    public ScheduledMixer schedule(Mixer mixer,
+                                   double runningFrequency, double stoppedFrequency,
+                                   MixerClock clock,
+                                   long slowTickNanos) {
+        if (!running) throw new IllegalStateException("scheduler closed");
+
+        ScheduledMixer scheduledMixer = new ScheduledMixer(
+                mixer,
+                (long) (1_000_000_000D / runningFrequency),
+                (long) (1_000_000_000D / stoppedFrequency),
+                clock,
+                slowTickNanos
+        );
+
+        clock.reset();
+        scheduledMixer.deadline = scheduledMixer.dueAt = clock.next(0L);
+        enqueue(scheduledMixer);
+
+        return scheduledMixer;
+    }
+
+    public int getWorkers() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Gets the count of mixers waiting for their next deadline.
+     * @return Queued mixers
+     */
+    public int getQueued() {
+        queueLock.lock();
+        try {
+            return queue.size();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void enqueue(ScheduledMixer scheduledMixer) {
+        queueLock.lock();
+        try {
+            queue.add(scheduledMixer);
+
+            // Wake the timer if this is now the earliest deadline
+            if (queue.peek() == scheduledMixer) queueChanged.signal();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private boolean dequeue(ScheduledMixer scheduledMixer) {
+        queueLock.lock();
+        try {
+            return queue.remove(scheduledMixer);
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void runTimer() {
+        while (running) {
+            ScheduledMixer next;
+
+            queueLock.lock();
+            try {
+                next = queue.peek();
+
+                if (next == null) {
+                    queueChanged.await();
+                    continue;
+                }
+
+                long remaining = next.dueAt - System.nanoTime();
+                if (remaining > 0L) {
+                    queueChanged.awaitNanos(remaining);
+                    continue;
+                }
+
+                queue.poll();
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                queueLock.unlock();
+            }
+
+            pool.execute(next);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        timerThread.interrupt();
+
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    public final class ScheduledMixer implements Runnable {
+        private final Mixer mixer;
+        private final long runningInterval, stoppedInterval;
+        private final MixerClock clock;
+        private final long slowTickNanos;
+
+        // Only modified while this mixer is out of the queue
+        private long deadline;
+        private long dueAt; // When the timer hands the mixer to the pool: its deadline, later after a slow tick
+
+        private volatile boolean cancelled = false;
+
+        // Statistics
+        private volatile long lastTickNanos = 0L, maxTickNanos = 0L;
+        private volatile long slowTicks = 0L;
+        private volatile long starvedTicks = 0L;
+
+        private ScheduledMixer(Mixer mixer,
+                               long runningInterval, long stoppedInterval,
+                               MixerClock clock,
+                               long slowTickNanos) {
+            this.mixer = mixer;
+            this.runningInterval = runningInterval;
+            this.stoppedInterval = stoppedInterval;
+            this.clock = clock;
+            this.slowTickNanos = slowTickNanos;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+
+            clock.recordWake(deadline);
+
+            long start = System.nanoTime();
+            boolean playing;
+
+            try {
+                playing = MixerProcessTask.process(mixer);
+            } catch (Throwable e) {
+                Logger.getGlobal().log(Level.SEVERE, "Problem processing mixer task", e);
+                cancelled = true;
+                return;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            lastTickNanos = elapsed;
+            if (elapsed > maxTickNanos) maxTickNanos = elapsed;
+
+            if (elapsed > slowTickNanos) {
+                slowTicks++;
+                Logger.getGlobal().log(Level.FINE, "Slow mixer tick: " + ((double) elapsed / 1_000_000D) +
+                        "ms, over " + ((double) slowTickNanos / 1_000_000D) + "ms");
+            }
+
+            if (cancelled || !running) return;
+
+            // Refill a starving sink after half an interval, rather than letting it run dry
+            long interval = playing ? runningInterval : stoppedInterval;
+            if (playing && mixer.isStarving()) {
+                interval /= 2;
+                starvedTicks++;
+            }
+
+            deadline = clock.next(interval);
+            dueAt = deadline + Math.max(0L, elapsed - slowTickNanos); // Give way by the overrun
+            enqueue(this);
+        }
+
+        /**
+         * Stops ticking this mixer.  A tick already in progress completes.
+         * @return true if the mixer was waiting in the queue, false otherwise
+         */
+        public boolean cancel() {
+            cancelled = true;
+            return dequeue(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public Mixer getMixer() {
+            return mixer;
+        }
+
+        public MixerClock getClock() {
+            return clock;
+        }
+
+        public long getSlowTickNanos() {
+            return slowTickNanos;
+        }
+
+        /**
+         * Gets the count of ticks that took longer than the slow tick threshold, each of which delayed the mixer's next
+         * tick by the overrun.
+         * @return Slow tick count
+         */
+        public long getSlowTicks() {
+            return slowTicks;
+        }
+
+        /**
+         * Gets the count of ticks followed by a shortened interval because a sink was starving.
+         * @return Starved ticks
+         */
+        public long getStarvedTicks() {
+            return starvedTicks;
+        }
+
+        public long getLastTickNanos() {
+            return lastTickNanos;
+        }
+
+        public long getMaxTickNanos() {
+            return maxTickNanos;
+        }
+
+        private long getDueAt() {
+            return dueAt;
+        }
+    }
+}
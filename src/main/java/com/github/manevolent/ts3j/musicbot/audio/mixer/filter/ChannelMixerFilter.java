@@ -0,0 +1,50 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.filter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adapts a set of mono filters, one per channel, into a multi-channel filter.
+ */
+public class ChannelMixerFilter implements MultiChannelMixerFilter {
+    private final MixerFilter[] filters;
+    private final List<MixerFilter> filterList;
+
+    public ChannelMixerFilter(MixerFilter... filters) {
+        this.filters = filters.clone();
+        this.filterList = Collections.unmodifiableList(Arrays.asList(this.filters));
+    }
+
+    /**
+     * Gets the mono filters, indexed by channel.
+     * @return Immutable list of filters
+     */
+    public List<MixerFilter> getFilters() {
+        return filterList;
+    }
+
+    @Override
+    public int process(float[][] channels, int offs, int len) {
+        if (channels.length != filters.length)
+            throw new IllegalArgumentException("channel mismatch: " + channels.length + " != " + filters.length);
+
+        for (int ch = 0; ch < filters.length; ch ++)
+            filters[ch].process(channels[ch], offs, len);
+
+        return len;
+    }
+
+    @Override
+    public boolean isBypassable() {
+        for (MixerFilter filter : filters)
+            if (!filter.isBypassable()) return false;
+
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        for (MixerFilter filter : filters) filter.reset();
+    }
+}
@@ -15,6 +15,13 @@ public interface MixerFilter {
      */
     int process(float[] buffer, int offs, int len);
 
+    /**
+     * Finds if the filter may be left out when audio bypasses the PCM pipeline as encoded packets (see
+     * PacketMixerChannel), i.e. it would not audibly change a decoded stream as it currently stands.
+     * @return true if bypassable, false otherwise
+     */
+    default boolean isBypassable() { return false; }
+
     /**
      * Resets the filter's state back to the initial filter state.
      */
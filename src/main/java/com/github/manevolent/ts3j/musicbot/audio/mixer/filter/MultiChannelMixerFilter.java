@@ -0,0 +1,31 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.filter;
+
+/**
+ * Represents a filter that sees every channel of a block at once, which allows stereo-linked processing.
+ * Samples are planar: one array per audio channel.
+ */
+public interface MultiChannelMixerFilter {
+
+    /**
+     * Calls the filter to process the specified audio channels.
+     *
+     * @param channels Planar PCM samples to process, indexed by channel
+     * @param offs offset to process at, in every channel
+     * @param len length of samples to process, per channel
+     * @return processed samples per channel, usually must == len
+     */
+    int process(float[][] channels, int offs, int len);
+
+    /**
+     * Finds if the filter may be left out when audio bypasses the PCM pipeline as encoded packets (see
+     * PacketMixerChannel), i.e. it would not audibly change a decoded stream as it currently stands.
+     * @return true if bypassable, false otherwise
+     */
+    default boolean isBypassable() { return false; }
+
+    /**
+     * Resets the filter's state back to the initial filter state.
+     */
+    default void reset() { }
+
+}
@@ -25,6 +25,14 @@ public class FilterDither implements MixerFilter {
         ditherRange = (1f / (float)Math.pow(2, bits));
     }
 
+    /**
+     * Dither only helps PCM on its way to an encoder; a packet passed through is never quantized again.
+     */
+    @Override
+    public boolean isBypassable() {
+        return true;
+    }
+
     @Override
     public int process(float[] samples, int offs, int len) {
         for (int i = offs; i < len; i ++) {
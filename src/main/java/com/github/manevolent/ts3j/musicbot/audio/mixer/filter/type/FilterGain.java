@@ -1,7 +1,9 @@
 package com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type;
 
-import com.github.manevolent.ts3j.musicbot.audio.mixer.Mixer;
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernel;
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernels;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MultiChannelMixerFilter;
 
 /**
  * Compresses an audio signal (analog).
@@ -9,8 +11,11 @@ import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
  * When Q is closer to 0, the signal volume is increased.
  * When Q is 1, the signal volume is not modified.
  * When Q is closer to infinity, the signal volume is reduced.
+ *
+ * Can be used per channel, or as one stereo-linked filter across all channels.
  */
-public class FilterGain implements MixerFilter {
+public class FilterGain implements MixerFilter, MultiChannelMixerFilter {
+    private final AudioKernel kernel = AudioKernels.get();
     private float q;
 
     public FilterGain(float q) {
@@ -27,10 +32,26 @@ public class FilterGain implements MixerFilter {
 
     @Override
     public int process(float[] samples, int offs, int len) {
-        for (int i = 0; i < len; i ++) {
-            samples[i] = samples[i] * q;
-        }
+        kernel.scale(samples, offs, len, q);
+
+        return len;
+    }
+
+    @Override
+    public int process(float[][] channels, int offs, int len) {
+        float q = this.q; // Same gain on every channel, even if changed mid-block
+
+        for (float[] samples : channels)
+            kernel.scale(samples, offs, len, q);
 
-        return len - offs;
+        return len;
     }
+
+    @Override
+    public boolean isBypassable() {
+        return q == 1F;
+    }
+
+    @Override
+    public void reset() { }
 }
@@ -1,5 +1,6 @@
 package com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type;
 
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernels;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
 
 public class SoftClipFilter implements MixerFilter {
@@ -21,6 +22,14 @@ public class SoftClipFilter implements MixerFilter {
             states[i] = 0f;
     }
 
+    /**
+     * Only samples beyond full scale are touched, which an already encoded source doesn't produce on its own.
+     */
+    @Override
+    public boolean isBypassable() {
+        return true;
+    }
+
     @Override
     public int process(float[] samples, int offs, int len) {
         pcm_soft_clip(samples, offs, len/channels, channels, states);
@@ -48,8 +57,7 @@ public class SoftClipFilter implements MixerFilter {
           non-linearity can handle. At the point where the signal reaches +/-2,
           the derivative will be zero anyway, so this doesn't introduce any
           discontinuity in the derivative. */
-        for (i=0;i<N*C;i++)
-            _x[offs + i] = Math.max(-2.f, Math.min(2.f, _x[offs + i]));
+        AudioKernels.get().clamp(_x, offs, N*C, -2.f, 2.f);
 
         for (c=0;c<C;c++)
         {
@@ -0,0 +1,36 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.input;
+
+import java.io.IOException;
+
+/**
+ * A channel whose audio is already Opus encoded, and can be sent on as-is.
+ *
+ * While it is a mixer's only channel, every filter is bypassable and every sink is a PacketMixerSink that accepts its
+ * packets, the mixer moves its packets straight to the sinks without decoding or re-encoding them.  Otherwise it is
+ * read as PCM like any other channel.  Both reads consume the same packets, so the mixer may switch between them at
+ * any packet boundary.
+ */
+public interface PacketMixerChannel extends MixerChannel {
+
+    /**
+     * Buffer size sufficient for any valid Opus packet of up to 60ms, the longest frame a sink encodes.
+     */
+    int MAXIMUM_PACKET_SIZE = 4096;
+
+    /**
+     * Finds the duration of the next packet, reading ahead if necessary.  Blocking, like read().
+     * @return Samples in the next packet (interleaved, in the channel's format), 0 if the next samples aren't packets
+     *         and have to be read with read(), or -1 if there are no more packets
+     * @throws IOException
+     */
+    int peekPacket() throws IOException;
+
+    /**
+     * Reads the next packet, skipping it for PCM reads.
+     * @param buffer Buffer to copy the packet into
+     * @return Packet length, in bytes
+     * @throws IOException
+     */
+    int readPacket(byte[] buffer) throws IOException;
+
+}
@@ -71,6 +71,23 @@ public interface MixerSink {
      */
     long getOverflows();
 
+    /**
+     * Gets the count of samples written to the sink that it has not played out yet.
+     * @return Queued samples
+     */
+    default int getQueuedSamples() {
+        return 0;
+    }
+
+    /**
+     * Finds if the sink is close to running dry: running, but with less queued than its low watermark.  The mixer
+     * ticks sooner while any of its sinks is starving.
+     * @return true if starving, false otherwise
+     */
+    default boolean isStarving() {
+        return false;
+    }
+
     /**
      * Closes the sink permanently.
      */
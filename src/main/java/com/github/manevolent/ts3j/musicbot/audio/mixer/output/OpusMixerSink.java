@@ -1,6 +1,7 @@
 package com.github.manevolent.ts3j.musicbot.audio.mixer.output;
 
 import com.github.manevolent.ts3j.audio.Microphone;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.stats.Histogram;
 import com.github.manevolent.ts3j.musicbot.audio.opus.OpusParameters;
 
 public interface OpusMixerSink
@@ -27,6 +28,36 @@ public interface OpusMixerSink
      */
     long getPacketsSent();
 
+    /**
+     * Gets the time from samples entering the sink to their packet being encoded, in nanoseconds
+     * @return Encode latency histogram
+     */
+    Histogram getEncodeLatency();
+
+    /**
+     * Gets the time from samples entering the sink to their packet being sent, in nanoseconds
+     * @return Packet latency histogram
+     */
+    Histogram getPacketLatency();
+
+    /**
+     * Gets the count of silent frames, encoded or not
+     * @return Silent frames
+     */
+    long getSilentFrames();
+
+    /**
+     * Gets the count of silent frames sent as a repeated packet instead of being encoded
+     * @return Encodes skipped
+     */
+    long getEncodesSkipped();
+
+    /**
+     * Gets the count of times the queue of packets dropped below the low latency watermark
+     * @return Starvations
+     */
+    long getStarvations();
+
     /**
      * Gets the time spent encoding Encoder packets, in nanoseconds
      * @return Encoder time
@@ -0,0 +1,36 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.output;
+
+/**
+ * A sink that can send already encoded packets from a PacketMixerChannel as-is, in place of samples.
+ */
+public interface PacketMixerSink extends MixerSink {
+
+    /**
+     * Finds if the sink can send packets of the given duration as-is (i.e. they match its frame size).
+     * @param samples Samples in the packet (interleaved)
+     * @return true if acceptable, false if the packet must be decoded and written as samples instead
+     */
+    boolean acceptsPacket(int samples);
+
+    /**
+     * Prepares the sink to take a packet.  Samples written before must be sent first, so this flushes them and
+     * returns false until they are.
+     * @return true if writePacket() will accept a packet now, false otherwise
+     */
+    boolean preparePacket();
+
+    /**
+     * Writes one packet in place of its samples.  Only valid after preparePacket() returned true.
+     * @param packet Packet buffer
+     * @param length Packet length, in bytes
+     * @param samples Samples in the packet (interleaved)
+     */
+    void writePacket(byte[] packet, int length, int samples);
+
+    /**
+     * Gets the count of packets written with writePacket().
+     * @return Packets passed through
+     */
+    long getPacketsPassedThrough();
+
+}
@@ -0,0 +1,140 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.stats;
+
+/**
+ * Fixed-size log-linear histogram of non-negative long values (in the style of HdrHistogram).
+ *
+ * Values below 2^precision are counted exactly; above that, each power of two is split into 2^(precision-1) equal
+ * sub-buckets, so every recorded value is kept within a relative error of 2^-(precision-1).  All buckets are
+ * allocated up front and recording is a few shifts and an array increment, so it is cheap enough for the mixer tick.
+ *
+ * Safe for one recording thread and any number of reading threads; readers may observe a recording in progress,
+ * which only skews a snapshot by that one value.
+ */
+public class Histogram {
+    private final int precision;
+    private final int subBucketCount, subBucketHalfCount;
+    private final long maxValue;
+
+    private final long[] counts;
+
+    private volatile long count = 0L;
+    private volatile long total = 0L;
+    private volatile long min = Long.MAX_VALUE, max = 0L;
+
+    /**
+     * @param maxValue Highest value tracked; larger values are counted as this value
+     * @param precision Sub-bucket bits, between 2 and 16 (5 gives ~6% error, 7 gives ~1.6%)
+     */
+    public Histogram(long maxValue, int precision) {
+        if (maxValue < 1) throw new IllegalArgumentException("invalid max value: " + maxValue);
+        if (precision < 2 || precision > 16) throw new IllegalArgumentException("invalid precision: " + precision);
+
+        this.precision = precision;
+        this.subBucketCount = 1 << precision;
+        this.subBucketHalfCount = subBucketCount >> 1;
+        this.maxValue = maxValue;
+
+        this.counts = new long[indexOf(maxValue) + 1];
+    }
+
+    /**
+     * Records a value.
+     * @param value Value to record; negative values are counted as 0
+     */
+    public void record(long value) {
+        if (value < 0L) value = 0L;
+        else if (value > maxValue) value = maxValue;
+
+        counts[indexOf(value)]++;
+
+        if (value < min) min = value;
+        if (value > max) max = value;
+        total += value;
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return count > 0 ? min : 0L;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        long count = this.count;
+        return count > 0 ? (double) total / (double) count : 0D;
+    }
+
+    /**
+     * Finds the value at or below which the given percentage of recorded values fall.
+     * @param percentile Percentile, [0,100]
+     * @return Highest value equivalent to the bucket holding the percentile, or 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = this.count;
+        if (count <= 0L) return 0L;
+
+        long target = Math.max(1L, (long) Math.ceil((Math.min(100D, Math.max(0D, percentile)) / 100D) * count));
+        long seen = 0L;
+
+        for (int index = 0; index < counts.length; index ++) {
+            seen += counts[index];
+            if (seen >= target) return Math.min(highestValueOf(index), max);
+        }
+
+        return max;
+    }
+
+    /**
+     * Takes an immutable summary of the histogram.
+     * @return Snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        return new HistogramSnapshot(
+                getCount(),
+                getMin(),
+                getMean(),
+                getValueAtPercentile(50D),
+                getValueAtPercentile(90D),
+                getValueAtPercentile(99D),
+                getValueAtPercentile(99.9D),
+                getMax()
+        );
+    }
+
+    /**
+     * Clears all recorded values.  Should not race with record(); a value recorded during a reset may be lost.
+     */
+    public void reset() {
+        for (int index = 0; index < counts.length; index ++) counts[index] = 0L;
+
+        count = 0L;
+        total = 0L;
+        min = Long.MAX_VALUE;
+        max = 0L;
+    }
+
+    private int indexOf(long value) {
+        if (value < subBucketCount) return (int) value;
+
+        // Shift so that the top bits of the value land in [half, full) of a sub-bucket range
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (precision - 1);
+        int subBucket = (int) (value >>> shift) - subBucketHalfCount;
+
+        return subBucketCount + ((shift - 1) * subBucketHalfCount) + subBucket;
+    }
+
+    private long highestValueOf(int index) {
+        if (index < subBucketCount) return index;
+
+        int shift = ((index - subBucketCount) / subBucketHalfCount) + 1;
+        long top = ((index - subBucketCount) % subBucketHalfCount) + subBucketHalfCount;
+
+        return ((top + 1L) << shift) - 1L;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.stats;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable summary of a Histogram, exposed over JMX as composite data.
+ */
+public class HistogramSnapshot {
+    private final long count;
+    private final long min;
+    private final double mean;
+    private final long median, p90, p99, p999;
+    private final long max;
+
+    @ConstructorProperties({"count", "min", "mean", "median", "p90", "p99", "p999", "max"})
+    public HistogramSnapshot(long count, long min, double mean, long median, long p90, long p99, long p999, long max) {
+        this.count = count;
+        this.min = min;
+        this.mean = mean;
+        this.median = median;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getMedian() {
+        return median;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", min=" + min + ", mean=" + (long) mean + ", p50=" + median +
+                ", p90=" + p90 + ", p99=" + p99 + ", p99.9=" + p999 + ", max=" + max;
+    }
+}
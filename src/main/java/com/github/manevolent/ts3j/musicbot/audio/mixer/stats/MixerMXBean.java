@@ -0,0 +1,105 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.stats;
+
+/**
+ * Management interface of a scheduled mixer.  All times are in nanoseconds.
+ */
+public interface MixerMXBean {
+    int getChannelCount();
+    int getSinkCount();
+    boolean isPlaying();
+
+    long getSamplesMixed();
+
+    HistogramSnapshot getTickTime();
+    HistogramSnapshot getChannelReadTime();
+    HistogramSnapshot getFilterTime();
+    HistogramSnapshot getSinkTime();
+
+    /**
+     * Gets the tick time beyond which a tick counts as slow.
+     * @return Slow tick threshold
+     */
+    long getSlowTickThreshold();
+
+    /**
+     * Gets the count of ticks that took longer than the slow tick threshold.  A rising count precedes audible dropouts.
+     * @return Slow ticks
+     */
+    long getSlowTicks();
+
+    /**
+     * Gets the count of ticks that started after their deadline had already passed.
+     * @return Late ticks
+     */
+    long getLateTicks();
+
+    /**
+     * Gets the count of times the mixer clock fell too far behind and resynchronized, i.e. dropped ticks.
+     * @return Clock resyncs
+     */
+    long getClockResyncs();
+
+    double getAverageJitter();
+    long getMaxJitter();
+
+    /**
+     * Gets the count of Opus packets encoded by the mixer's sinks.
+     * @return Packets encoded
+     */
+    long getPacketsEncoded();
+
+    /**
+     * Gets the time from samples being written to the mixer's Opus sink to their packet being encoded.
+     * @return Encode latency histogram
+     */
+    HistogramSnapshot getEncodeLatency();
+
+    /**
+     * Gets the time from samples being written to the mixer's Opus sink to their packet being sent; i.e. how long
+     * mixed audio waits before it goes out.
+     * @return Packet latency histogram
+     */
+    HistogramSnapshot getPacketLatency();
+
+    /**
+     * Gets the count of silent frames the mixer's sinks received.
+     * @return Silent frames
+     */
+    long getSilentFrames();
+
+    /**
+     * Gets the count of silent frames the mixer's sinks sent without running the encoder.
+     * @return Encodes skipped
+     */
+    long getEncodesSkipped();
+
+    /**
+     * Gets the count of packets the mixer's sinks sent as received from the source, without decoding or encoding.
+     * @return Packets passed through
+     */
+    long getPacketsPassedThrough();
+
+    /**
+     * Gets the audio queued between the mixer and the network, in the fullest running sink.
+     * @return Queued latency, in milliseconds
+     */
+    double getQueuedLatency();
+
+    /**
+     * Gets the count of times the mixer's Opus sinks dropped below their low latency watermark.
+     * @return Starvations
+     */
+    long getStarvations();
+
+    /**
+     * Gets the count of ticks after which the mixer ticked early to refill a starving sink.
+     * @return Starved ticks
+     */
+    long getStarvedTicks();
+
+    /**
+     * Clears the histograms, including the sinks' latency histograms, and the mixed sample count.  Overrun and clock
+     * counters are cumulative.
+     */
+    void reset();
+}
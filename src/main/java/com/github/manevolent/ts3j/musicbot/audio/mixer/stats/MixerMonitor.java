@@ -0,0 +1,242 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.stats;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.Mixer;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerClock;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerScheduler;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.output.MixerSink;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.output.OpusMixerSink;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.output.PacketMixerSink;
+
+import javax.management.*;
+import javax.sound.sampled.AudioFormat;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes a scheduled mixer's statistics over JMX.
+ */
+public class MixerMonitor implements MixerMXBean {
+    private static final String DOMAIN = "com.github.manevolent.ts3j.musicbot";
+
+    private static final HistogramSnapshot EMPTY = new HistogramSnapshot(0L, 0L, 0D, 0L, 0L, 0L, 0L, 0L);
+
+    private final MixerScheduler.ScheduledMixer scheduledMixer;
+    private final MixerStatistics statistics;
+
+    private ObjectName objectName;
+
+    public MixerMonitor(MixerScheduler.ScheduledMixer scheduledMixer, MixerStatistics statistics) {
+        this.scheduledMixer = scheduledMixer;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Registers this monitor with the platform MBean server.
+     * @param server Server the mixer's bot connects to
+     * @param name Name of the mixer's bot
+     * @throws JMException if the monitor could not be registered
+     */
+    public void register(String server, String name) throws JMException {
+        ObjectName objectName = new ObjectName(
+                DOMAIN + ":type=Mixer,server=" + ObjectName.quote(server) + ",name=" + ObjectName.quote(name)
+        );
+
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+        this.objectName = objectName;
+    }
+
+    /**
+     * Unregisters this monitor, if it was registered.
+     * @throws JMException if the monitor could not be unregistered
+     */
+    public void unregister() throws JMException {
+        if (objectName == null) return;
+
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+
+        objectName = null;
+    }
+
+    private Mixer getMixer() {
+        return scheduledMixer.getMixer();
+    }
+
+    private MixerClock getClock() {
+        return scheduledMixer.getClock();
+    }
+
+    @Override
+    public int getChannelCount() {
+        return getMixer().getChannels().size();
+    }
+
+    @Override
+    public int getSinkCount() {
+        return getMixer().getSinks().size();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return getMixer().isPlaying();
+    }
+
+    @Override
+    public long getSamplesMixed() {
+        return statistics.getSamplesMixed();
+    }
+
+    @Override
+    public HistogramSnapshot getTickTime() {
+        return statistics.getTickTime().snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getChannelReadTime() {
+        return statistics.getChannelReadTime().snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getFilterTime() {
+        return statistics.getFilterTime().snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getSinkTime() {
+        return statistics.getSinkTime().snapshot();
+    }
+
+    @Override
+    public long getSlowTickThreshold() {
+        return scheduledMixer.getSlowTickNanos();
+    }
+
+    @Override
+    public long getSlowTicks() {
+        return scheduledMixer.getSlowTicks();
+    }
+
+    @Override
+    public long getLateTicks() {
+        return getClock().getOverruns();
+    }
+
+    @Override
+    public long getClockResyncs() {
+        return getClock().getResyncs();
+    }
+
+    @Override
+    public double getAverageJitter() {
+        return getClock().getAverageJitter();
+    }
+
+    @Override
+    public long getMaxJitter() {
+        return getClock().getMaxJitter();
+    }
+
+    @Override
+    public long getPacketsEncoded() {
+        long packets = 0L;
+
+        for (MixerSink sink : getMixer().getSinks())
+            if (sink instanceof OpusMixerSink) packets += ((OpusMixerSink) sink).getPacketsEncoded();
+
+        return packets;
+    }
+
+    @Override
+    public HistogramSnapshot getEncodeLatency() {
+        OpusMixerSink sink = getOpusSink();
+        return sink != null ? sink.getEncodeLatency().snapshot() : EMPTY;
+    }
+
+    @Override
+    public HistogramSnapshot getPacketLatency() {
+        OpusMixerSink sink = getOpusSink();
+        return sink != null ? sink.getPacketLatency().snapshot() : EMPTY;
+    }
+
+    /**
+     * Finds the mixer's Opus sink, of which a bot has one.
+     * @return First Opus sink, or null if there is none
+     */
+    private OpusMixerSink getOpusSink() {
+        for (MixerSink sink : getMixer().getSinks())
+            if (sink instanceof OpusMixerSink) return (OpusMixerSink) sink;
+
+        return null;
+    }
+
+    @Override
+    public long getSilentFrames() {
+        long frames = 0L;
+
+        for (MixerSink sink : getMixer().getSinks())
+            if (sink instanceof OpusMixerSink) frames += ((OpusMixerSink) sink).getSilentFrames();
+
+        return frames;
+    }
+
+    @Override
+    public long getEncodesSkipped() {
+        long skipped = 0L;
+
+        for (MixerSink sink : getMixer().getSinks())
+            if (sink instanceof OpusMixerSink) skipped += ((OpusMixerSink) sink).getEncodesSkipped();
+
+        return skipped;
+    }
+
+    @Override
+    public long getPacketsPassedThrough() {
+        long passed = 0L;
+
+        for (MixerSink sink : getMixer().getSinks())
+            if (sink instanceof PacketMixerSink) passed += ((PacketMixerSink) sink).getPacketsPassedThrough();
+
+        return passed;
+    }
+
+    @Override
+    public double getQueuedLatency() {
+        double latency = 0D;
+
+        for (MixerSink sink : getMixer().getSinks()) {
+            if (!sink.isRunning()) continue;
+
+            AudioFormat format = sink.getAudioFormat();
+            latency = Math.max(latency,
+                    (double) sink.getQueuedSamples() * 1000D / (format.getSampleRate() * format.getChannels()));
+        }
+
+        return latency;
+    }
+
+    @Override
+    public long getStarvations() {
+        long starvations = 0L;
+
+        for (MixerSink sink : getMixer().getSinks())
+            if (sink instanceof OpusMixerSink) starvations += ((OpusMixerSink) sink).getStarvations();
+
+        return starvations;
+    }
+
+    @Override
+    public long getStarvedTicks() {
+        return scheduledMixer.getStarvedTicks();
+    }
+
+    @Override
+    public void reset() {
+        statistics.reset();
+
+        for (MixerSink sink : getMixer().getSinks()) {
+            if (sink instanceof OpusMixerSink) {
+                ((OpusMixerSink) sink).getEncodeLatency().reset();
+                ((OpusMixerSink) sink).getPacketLatency().reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.manevolent.ts3j.musicbot.audio.mixer.stats;
+
+/**
+ * Timings of a mixer's ticks, recorded by the mixer itself.  All times are in nanoseconds.
+ *
+ * Written only by the thread ticking the mixer; readable from any thread.
+ */
+public class MixerStatistics {
+    private static final long MAX_TRACKED_NANOS = 10_000_000_000L;
+    private static final int PRECISION = 6;
+
+    private final Histogram tickTime = new Histogram(MAX_TRACKED_NANOS, PRECISION);
+    private final Histogram channelReadTime = new Histogram(MAX_TRACKED_NANOS, PRECISION);
+    private final Histogram filterTime = new Histogram(MAX_TRACKED_NANOS, PRECISION);
+    private final Histogram sinkTime = new Histogram(MAX_TRACKED_NANOS, PRECISION);
+
+    private volatile long samplesMixed = 0L;
+
+    /**
+     * Gets the wall time of each processBuffer() call.
+     * @return Tick time histogram
+     */
+    public Histogram getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * Gets the time of each individual channel read() call.
+     * @return Channel read time histogram
+     */
+    public Histogram getChannelReadTime() {
+        return channelReadTime;
+    }
+
+    /**
+     * Gets the time to run the whole filter chain over one mixed block, including (de)interleaving.
+     * @return Filter time histogram
+     */
+    public Histogram getFilterTime() {
+        return filterTime;
+    }
+
+    /**
+     * Gets the time to write one mixed block to all sinks.
+     * @return Sink time histogram
+     */
+    public Histogram getSinkTime() {
+        return sinkTime;
+    }
+
+    /**
+     * Gets the count of interleaved samples mixed since the last reset.
+     * @return Samples mixed
+     */
+    public long getSamplesMixed() {
+        return samplesMixed;
+    }
+
+    public void addSamplesMixed(int samples) {
+        samplesMixed += samples;
+    }
+
+    public void reset() {
+        tickTime.reset();
+        channelReadTime.reset();
+        filterTime.reset();
+        sinkTime.reset();
+        samplesMixed = 0L;
+    }
+}
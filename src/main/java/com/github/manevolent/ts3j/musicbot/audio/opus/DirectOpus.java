@@ -0,0 +1,22 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * libopus entry points taking native addresses, for use with direct buffers.  JNA passes them to the native call
+ * as-is, where heap arrays and buffers are copied in (and back out) on every call.
+ *
+ * Encoder states are shared with net.tomp2p.opuswrapper.Opus, since both bind the same native library.
+ */
+interface DirectOpus extends Library {
+    DirectOpus INSTANCE = (DirectOpus) Native.loadLibrary("opus", DirectOpus.class);
+
+    /**
+     * Encodes a frame between raw addresses, so it can be encoded from anywhere in a larger direct buffer (see
+     * Native.getDirectBufferPointer).
+     */
+    int opus_encode_float(PointerByReference st, Pointer pcm, int frame_size, Pointer data, int max_data_bytes);
+}
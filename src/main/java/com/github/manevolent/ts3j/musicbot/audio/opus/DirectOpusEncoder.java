@@ -0,0 +1,132 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Opus encoder that stages each frame through direct (native) buffers.
+ *
+ * The PCM frame and the encoded packet are copied with plain bulk puts into buffers allocated once, outside the Java
+ * heap, and only their addresses cross JNA; the plain encoder hands JNA heap arrays, which it copies into and back
+ * out of native memory on every call.
+ *
+ * The staging buffers hold a whole batch of frames: a batch is copied in with one bulk put, and each frame is then
+ * encoded straight from its place in it, through addresses computed once.
+ */
+public class DirectOpusEncoder extends OpusEncoder {
+    private final int maxFrames;
+    private final int maxPacketLength;
+
+    private final FloatBuffer pcmBuffer; // maxFrames frames
+    private final ByteBuffer[] packetBuffers; // One per frame of a batch
+
+    // Native addresses of each frame's PCM and packet staging
+    private final Pointer[] pcmPointers;
+    private final Pointer[] packetPointers;
+
+    public DirectOpusEncoder(int sampleRate, int frameSize, int channels, boolean bigEndian) {
+        this(sampleRate, frameSize, channels, bigEndian, 4096);
+    }
+
+    public DirectOpusEncoder(int sampleRate, int frameSize,
+                             int channels, boolean bigEndian,
+                             int maxPacketLength) {
+        this(sampleRate, frameSize, channels, bigEndian, maxPacketLength, 1);
+    }
+
+    /**
+     * @param maxFrames Frames staged at once; larger batches are encoded in parts
+     */
+    public DirectOpusEncoder(int sampleRate, int frameSize,
+                             int channels, boolean bigEndian,
+                             int maxPacketLength, int maxFrames) {
+        super(sampleRate, frameSize, channels, bigEndian, maxPacketLength);
+
+        if (maxFrames <= 0) throw new IllegalArgumentException("invalid max frames: " + maxFrames);
+
+        this.maxFrames = maxFrames;
+        this.maxPacketLength = maxPacketLength;
+
+        int frameLength = frameSize * channels;
+
+        ByteBuffer pcmBytes = ByteBuffer.allocateDirect(maxFrames * frameLength * 4).order(ByteOrder.nativeOrder());
+        this.pcmBuffer = pcmBytes.asFloatBuffer();
+
+        ByteBuffer packetBytes = ByteBuffer.allocateDirect(maxFrames * maxPacketLength);
+
+        Pointer pcmPointer = Native.getDirectBufferPointer(pcmBytes);
+        Pointer packetPointer = Native.getDirectBufferPointer(packetBytes);
+
+        this.packetBuffers = new ByteBuffer[maxFrames];
+        this.pcmPointers = new Pointer[maxFrames];
+        this.packetPointers = new Pointer[maxFrames];
+
+        for (int frame = 0; frame < maxFrames; frame ++) {
+            packetBytes.limit((frame + 1) * maxPacketLength);
+            packetBytes.position(frame * maxPacketLength);
+            packetBuffers[frame] = packetBytes.slice();
+
+            pcmPointers[frame] = pcmPointer.share((long) frame * frameLength * 4);
+            packetPointers[frame] = packetPointer.share((long) frame * maxPacketLength);
+        }
+    }
+
+    @Override
+    protected int encodeFloat(PointerByReference encoder, float[] floats, ByteBuffer target) {
+        pcmBuffer.clear();
+        pcmBuffer.put(floats, 0, getFrameSize() * getChannels());
+
+        return encodeStaged(encoder, 0, target);
+    }
+
+    @Override
+    protected void encodeFloats(PointerByReference encoder, float[] floats, int offs, int frames,
+                                ByteBuffer[] targets, int[] lengths) {
+        int frameLength = getFrameSize() * getChannels();
+
+        for (int first = 0; first < frames; first += maxFrames) {
+            int count = Math.min(maxFrames, frames - first);
+
+            pcmBuffer.clear();
+            pcmBuffer.put(floats, offs + (first * frameLength), count * frameLength);
+
+            for (int frame = 0; frame < count; frame ++)
+                lengths[first + frame] = encodeStaged(encoder, frame, targets[first + frame]);
+        }
+    }
+
+    /**
+     * Encodes one staged frame, copying its packet out to the target.
+     * @param frame Index of the frame in the staging buffers
+     */
+    private int encodeStaged(PointerByReference encoder, int frame, ByteBuffer target) {
+        int result = DirectOpus.INSTANCE.opus_encode_float(
+                encoder,
+                pcmPointers[frame],
+                getFrameSize(),
+                packetPointers[frame],
+                Math.min(maxPacketLength, target.remaining())
+        );
+
+        if (result > 0) {
+            ByteBuffer packetBuffer = packetBuffers[frame];
+            packetBuffer.clear();
+            packetBuffer.limit(result);
+
+            int position = target.position();
+            target.put(packetBuffer);
+            target.position(position);
+        }
+
+        return result;
+    }
+
+    public int getMaxFrames() {
+        return maxFrames;
+    }
+}
@@ -45,6 +45,17 @@ public class OpusDecoder implements AutoCloseable {
     }
 
     public int decode(byte[] packet, float[] floats) {
+        return decode(packet, packet == null ? 0 : packet.length, floats);
+    }
+
+    /**
+     * Decodes the start of a packet buffer.
+     * @param packet Packet buffer, or null for packet loss concealment
+     * @param length Packet length
+     * @param floats Decoded samples
+     * @return Samples decoded, per channel
+     */
+    public int decode(byte[] packet, int length, float[] floats) {
         if (floats == null)
             throw new NullPointerException("floats");
         else if (floats.length < frameSize * channels)
@@ -53,7 +64,7 @@ public class OpusDecoder implements AutoCloseable {
         int result = Opus.INSTANCE.opus_decode_float(
                 decoder,
                 packet,
-                packet == null ? 0 : packet.length,
+                length,
                 FloatBuffer.wrap(floats),
                 frameSize,
                 0
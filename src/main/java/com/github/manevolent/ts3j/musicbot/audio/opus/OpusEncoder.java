@@ -16,6 +16,7 @@ public class OpusEncoder implements AutoCloseable {
     private static final int[] OPUS_PERMITTED_SAMPLE_RATES =
             { 8000, 12000, 16000, 24000, 48000 };
 
+    // Frame sizes at 48KHz: 2.5, 5, 10, 20, 40 and 60ms.  Other sample rates scale these down.
     private static final int[] OPUS_PERMITTED_FRAME_SIZES =
             { 120, 240, 480, 960, 1920, 2880 };
 
@@ -29,7 +30,9 @@ public class OpusEncoder implements AutoCloseable {
 
     private final ShortBuffer sourceShortBuffer;
     private final ByteBuffer sourceByteBuffer;
+    private final ShortBuffer sourceByteView; // sourceByteBuffer as shorts, in its byte order
     private final ByteBuffer targetBuffer;
+    private final float[] frameBuffer; // One frame of a batch, for encodeFloat
 
     private final Object encoderLock = new Object();
 
@@ -48,20 +51,23 @@ public class OpusEncoder implements AutoCloseable {
         this.bigEndian = bigEndian;
         this.expectedByteSize = frameSize * channels * 2;
 
-        if (!ArrayUtils.contains(OPUS_PERMITTED_FRAME_SIZES, frameSize))
-            throw new IllegalArgumentException("Invalid Opus frame size: " + frameSize);
-
         if (!ArrayUtils.contains(OPUS_PERMITTED_SAMPLE_RATES, sampleRate))
             throw new IllegalArgumentException("Invalid Opus sample rate: " + sampleRate);
 
+        if ((frameSize * 48000) % sampleRate != 0 ||
+                !ArrayUtils.contains(OPUS_PERMITTED_FRAME_SIZES, frameSize * (48000 / sampleRate)))
+            throw new IllegalArgumentException("Invalid Opus frame size: " + frameSize + " at " + sampleRate + "Hz");
+
         if (!ArrayUtils.contains(OPUS_PERMITTED_CHANNEL_COUNTS, channels))
             throw new IllegalArgumentException("Invalid Opus channel count: " + channels);
 
         this.sourceShortBuffer = ShortBuffer.allocate(frameSize * channels);
         this.sourceByteBuffer = ByteBuffer.allocate(frameSize * channels * 2);
         this.sourceByteBuffer.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        this.sourceByteView = sourceByteBuffer.asShortBuffer();
 
         this.targetBuffer = ByteBuffer.allocate(maxPacketLength);
+        this.frameBuffer = new float[frameSize * channels];
 
         IntBuffer errorBuffer = IntBuffer.allocate(1);
 
@@ -101,40 +107,124 @@ public class OpusEncoder implements AutoCloseable {
     }
 
     public byte[] encode(float[] floats, int len) {
+        targetBuffer.clear();
+
+        int result = encode(floats, len, targetBuffer);
+
+        byte[] encoded = new byte[result];
+        targetBuffer.get(encoded);
+
+        return encoded;
+    }
+
+    /**
+     * Encodes one frame into a caller-owned buffer, without allocating.
+     * @param floats Interleaved samples
+     * @param len Sample count; must be exactly one frame
+     * @param target Buffer to encode into, from its position up to its limit.  The position is not moved.
+     * @return Encoded packet length, in bytes
+     */
+    public int encode(float[] floats, int len, ByteBuffer target) {
         if (len != getFrameSize() * getChannels())
             throw new IllegalArgumentException(len + " != " + getFrameSize() * getChannels());
 
-        targetBuffer.clear();
-
         int result;
         synchronized (encoderLock) {
             if (closed) throw new IllegalStateException("encoder closed");
 
             if (encoder == null) throw new IllegalStateException("encoder is null");
 
-            result = Opus.INSTANCE.opus_encode_float(
-                    encoder,
-                    floats,
-                    frameSize, // this is STATIC.
-                    targetBuffer,
-                    targetBuffer.capacity()
+            result = encodeFloat(encoder, floats, target);
+        }
+
+        // Only describe the call when it failed; this runs for every packet
+        if (result < Opus.OPUS_OK)
+            OpusUtil.checkError(
+                    "opus_encode_float," +
+                            " ch=" + channels +
+                            " smprate=" + sampleRate +
+                            " rate=" + sampleRate +
+                            " len=" + len + "/" + floats.length + ", frame_size=" + frameSize +
+                            ", max_data_bytes=" + target.remaining(),
+                    result
             );
+
+        return result;
+    }
+
+    /**
+     * Encodes consecutive frames, each into its own caller-owned buffer, holding the encoder once for all of them.
+     * Each frame still becomes its own packet; batching only saves the per-call overhead.
+     * @param floats Interleaved samples
+     * @param offs Offset of the first frame
+     * @param frames Frame count
+     * @param targets Buffers to encode each frame into, from their position up to their limit.  Positions are not
+     *                moved.
+     * @param lengths Receives the encoded packet length of each frame, in bytes
+     */
+    public void encode(float[] floats, int offs, int frames, ByteBuffer[] targets, int[] lengths) {
+        int frameLength = getFrameSize() * getChannels();
+
+        if (frames <= 0 || frames > targets.length || frames > lengths.length)
+            throw new IllegalArgumentException("invalid frame count: " + frames);
+        if (offs < 0 || offs + (frames * frameLength) > floats.length)
+            throw new IllegalArgumentException(offs + frames * frameLength + " > " + floats.length);
+
+        synchronized (encoderLock) {
+            if (closed) throw new IllegalStateException("encoder closed");
+
+            if (encoder == null) throw new IllegalStateException("encoder is null");
+
+            encodeFloats(encoder, floats, offs, frames, targets, lengths);
         }
 
-        OpusUtil.checkError(
-                "opus_encode_float," +
-                        " ch=" + channels +
-                        " smprate=" + sampleRate +
-                        " rate=" + sampleRate +
-                        " len=" + len + "/" + floats.length + ", frame_size=" + frameSize +
-                        ", max_data_bytes=" + targetBuffer.capacity(),
-                result
-        );
+        for (int frame = 0; frame < frames; frame ++)
+            if (lengths[frame] < Opus.OPUS_OK)
+                OpusUtil.checkError(
+                        "opus_encode_float," +
+                                " ch=" + channels +
+                                " smprate=" + sampleRate +
+                                " frame=" + frame + "/" + frames + ", frame_size=" + frameSize +
+                                ", max_data_bytes=" + targets[frame].remaining(),
+                        lengths[frame]
+                );
+    }
 
-        byte[] encoded = new byte[result];
-        targetBuffer.get(encoded);
+    /**
+     * Calls opus_encode_float for each of several consecutive frames.  Always called while holding the encoder lock.
+     * @param encoder Encoder state
+     * @param floats Interleaved samples
+     * @param offs Offset of the first frame
+     * @param frames Frame count
+     * @param targets Buffers to encode each frame into.  Positions must not be moved.
+     * @param lengths Receives the Opus return code of each frame
+     */
+    protected void encodeFloats(PointerByReference encoder, float[] floats, int offs, int frames,
+                                ByteBuffer[] targets, int[] lengths) {
+        int frameLength = getFrameSize() * getChannels();
+
+        for (int frame = 0; frame < frames; frame ++) {
+            // JNA takes arrays from their start
+            System.arraycopy(floats, offs + (frame * frameLength), frameBuffer, 0, frameLength);
+            lengths[frame] = encodeFloat(encoder, frameBuffer, targets[frame]);
+        }
+    }
 
-        return encoded;
+    /**
+     * Calls opus_encode_float for one frame.  Always called while holding the encoder lock.
+     * @param encoder Encoder state
+     * @param floats Interleaved samples, at least one frame
+     * @param target Buffer to encode into, from its position up to its limit.  The position must not be moved.
+     * @return Opus return code: the encoded packet length, or a negative error
+     */
+    protected int encodeFloat(PointerByReference encoder, float[] floats, ByteBuffer target) {
+        return Opus.INSTANCE.opus_encode_float(
+                encoder,
+                floats,
+                frameSize, // this is STATIC.
+                target,
+                target.remaining()
+        );
     }
 
     public byte[] encode(float[] floats) {
@@ -145,14 +235,13 @@ public class OpusEncoder implements AutoCloseable {
         if (pcm.length != expectedByteSize)
             throw new IllegalArgumentException(pcm.length + " != " + expectedByteSize);
 
-        // Clear source and input the PCM samples
+        // Clear source and input the PCM samples, swapped to shorts in one bulk put
         sourceByteBuffer.clear();
         sourceByteBuffer.put(pcm);
-        sourceByteBuffer.flip();
 
+        sourceByteView.clear();
         sourceShortBuffer.clear();
-        while (sourceByteBuffer.position() < sourceByteBuffer.limit())
-            sourceShortBuffer.put(sourceByteBuffer.getShort());
+        sourceShortBuffer.put(sourceByteView);
 
         // Clear target
         sourceShortBuffer.flip();
@@ -0,0 +1,110 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Worker threads shared by every sink's Opus encode stage, so encoding of different bots spreads across cores and
+ * stays off the mixer threads.
+ *
+ * Tasks are queued in a fixed-size array, so submitting one allocates nothing.  If the queue is ever full, the task
+ * runs on the submitting thread instead of being dropped.  Once the pool is closed, tasks are rejected with a
+ * RejectedExecutionException, so the submitter knows they will never run.
+ */
+public class OpusEncoderPool implements Executor, AutoCloseable {
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong(0L);
+    private final AtomicLong busyNanos = new AtomicLong(0L);
+    private final ThreadLocal<long[]> taskStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * @param workers Worker thread count; 0 or less to use one per available processor
+     * @param queueCapacity Maximum pending tasks; one per sink is enough, since a sink never queues two at once
+     */
+    public OpusEncoderPool(int workers, int queueCapacity) {
+        if (workers <= 0) workers = Runtime.getRuntime().availableProcessors();
+        if (queueCapacity <= 0) throw new IllegalArgumentException("invalid queue capacity: " + queueCapacity);
+
+        AtomicInteger threadCount = new AtomicInteger(0);
+
+        this.executor = new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "OpusEncoder-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MAX_PRIORITY - 1);
+                    thread.setUncaughtExceptionHandler((t, e) ->
+                            Logger.getGlobal().log(Level.SEVERE, "Problem in Opus encoder " + t.getName(), e)
+                    );
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    if (executor.isShutdown()) throw new RejectedExecutionException("Opus encoder pool closed");
+
+                    rejected.incrementAndGet();
+                    runnable.run();
+                }
+        ) {
+            @Override
+            protected void beforeExecute(Thread thread, Runnable runnable) {
+                taskStart.get()[0] = System.nanoTime();
+            }
+
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable throwable) {
+                busyNanos.addAndGet(System.nanoTime() - taskStart.get()[0]);
+            }
+        };
+
+        this.executor.prestartAllCoreThreads();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public int getWorkers() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Gets the count of tasks waiting for a worker.
+     * @return Queued tasks
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Gets the count of tasks that found the queue full and ran on the submitting thread.
+     * @return Rejected tasks
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the total time workers have spent running tasks, in nanoseconds.  Sampled twice, the difference over the
+     * elapsed time and worker count gives the pool's utilization (see OpusGovernor).
+     * @return Busy time
+     */
+    public long getBusyNanos() {
+        return busyNanos.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
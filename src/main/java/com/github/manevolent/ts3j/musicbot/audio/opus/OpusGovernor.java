@@ -0,0 +1,195 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
+import com.google.gson.JsonObject;
+
+/**
+ * Trades encoder quality for CPU time when encoding falls behind, and gives it back once there is headroom.
+ *
+ * Encode times are collected over windows of frames.  At the end of each window the load is the larger of this
+ * encoder's share of real time (encode time over frame time) and, if it encodes on an OpusEncoderPool, the pool's
+ * utilization over the same period.  Above the high watermark the governor steps down: complexity first, then
+ * bitrate.  Below the low watermark for several windows in a row it steps back up in the reverse order, never past
+ * the configured parameters.  The gap between the watermarks and the hold keep it from oscillating.
+ *
+ * Not thread-safe: a governor must only be fed by one sink's encode stage.  Getters may be read from any thread.
+ */
+public class OpusGovernor {
+    private final OpusEncoderPool pool;
+    private final long frameNanos;
+    private final int windowFrames;
+    private final double highLoad, lowLoad;
+    private final int holdWindows;
+
+    private final int maxComplexity, minComplexity;
+    private final int maxBitrate, minBitrate, bitrateStep;
+
+    private volatile int complexity, bitrate;
+    private volatile double load = 0D;
+    private volatile long stepsDown = 0L, stepsUp = 0L;
+
+    // Current window
+    private int frames = 0;
+    private long encodeNanos = 0L;
+    private long windowStart = 0L, windowBusyNanos = 0L;
+    private int headroomWindows = 0;
+
+    /**
+     * @param opusParameters Configured parameters; the highest complexity and bitrate the governor uses
+     * @param pool Pool the encoder runs on, to account for host-wide load; null to only consider this encoder
+     * @param windowFrames Encoded frames per window
+     * @param highLoad Load above which the governor steps down
+     * @param lowLoad Load below which the governor may step up
+     * @param holdWindows Consecutive windows below the low watermark before stepping up
+     * @param minComplexity Lowest complexity to step down to
+     * @param minBitrate Lowest bitrate to step down to, in bits per second
+     * @param bitrateStep Bitrate change per step, in bits per second
+     */
+    public OpusGovernor(OpusParameters opusParameters, OpusEncoderPool pool,
+                        int windowFrames, double highLoad, double lowLoad, int holdWindows,
+                        int minComplexity, int minBitrate, int bitrateStep) {
+        if (windowFrames <= 0) throw new IllegalArgumentException("invalid window: " + windowFrames);
+        if (lowLoad < 0D || lowLoad >= highLoad)
+            throw new IllegalArgumentException("invalid load watermarks: " + lowLoad + " >= " + highLoad);
+        if (holdWindows <= 0) throw new IllegalArgumentException("invalid hold: " + holdWindows);
+        if (bitrateStep < 0) throw new IllegalArgumentException("invalid bitrate step: " + bitrateStep);
+
+        this.pool = pool;
+        this.frameNanos = opusParameters.getOpusFrameNanos();
+        this.windowFrames = windowFrames;
+        this.highLoad = highLoad;
+        this.lowLoad = lowLoad;
+        this.holdWindows = holdWindows;
+
+        this.maxComplexity = opusParameters.getOpusComplexity();
+        this.minComplexity = Math.min(minComplexity, maxComplexity);
+        this.maxBitrate = opusParameters.getOpusBitrate();
+        this.minBitrate = Math.min(minBitrate, maxBitrate);
+        this.bitrateStep = bitrateStep;
+
+        this.complexity = maxComplexity;
+        this.bitrate = maxBitrate;
+    }
+
+    /**
+     * Records one encode.
+     * @param encodeNanos Time the encode took
+     * @param now Current System.nanoTime()
+     * @return true if the complexity or bitrate changed, and should be applied to the encoder
+     */
+    public boolean record(long encodeNanos, long now) {
+        if (frames == 0) {
+            windowStart = now - encodeNanos;
+            windowBusyNanos = pool != null ? pool.getBusyNanos() : 0L;
+        }
+
+        this.encodeNanos += encodeNanos;
+
+        if (++frames < windowFrames) return false;
+
+        double load = (double) this.encodeNanos / (double) (frames * frameNanos);
+
+        if (pool != null && now > windowStart) {
+            double poolLoad = (double) (pool.getBusyNanos() - windowBusyNanos) /
+                    ((double) (now - windowStart) * pool.getWorkers());
+
+            load = Math.max(load, poolLoad);
+        }
+
+        this.load = load;
+        this.frames = 0;
+        this.encodeNanos = 0L;
+
+        if (load > highLoad) {
+            headroomWindows = 0;
+            return stepDown();
+        } else if (load < lowLoad) {
+            if (++headroomWindows < holdWindows) return false;
+
+            headroomWindows = 0;
+            return stepUp();
+        } else {
+            headroomWindows = 0;
+            return false;
+        }
+    }
+
+    private boolean stepDown() {
+        if (complexity > minComplexity) {
+            complexity--;
+        } else if (bitrate > minBitrate && bitrateStep > 0) {
+            bitrate = Math.max(minBitrate, bitrate - bitrateStep);
+        } else {
+            return false;
+        }
+
+        stepsDown++;
+        return true;
+    }
+
+    private boolean stepUp() {
+        if (bitrate < maxBitrate && bitrateStep > 0) {
+            bitrate = Math.min(maxBitrate, bitrate + bitrateStep);
+        } else if (complexity < maxComplexity) {
+            complexity++;
+        } else {
+            return false;
+        }
+
+        stepsUp++;
+        return true;
+    }
+
+    public int getComplexity() {
+        return complexity;
+    }
+
+    public int getBitrate() {
+        return bitrate;
+    }
+
+    /**
+     * Gets the load measured over the last complete window, as a fraction of the available encode time.
+     * @return Load
+     */
+    public double getLoad() {
+        return load;
+    }
+
+    public long getStepsDown() {
+        return stepsDown;
+    }
+
+    public long getStepsUp() {
+        return stepsUp;
+    }
+
+    /**
+     * Creates a governor for an encoder from configuration.
+     * @return Governor, or null if governing is disabled
+     */
+    public static OpusGovernor fromJson(JsonObject defaultConfiguration, JsonObject serverConfiguration,
+                                        OpusParameters opusParameters, OpusEncoderPool pool) {
+        if (!ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.enabled")
+                .getAsBoolean())
+            return null;
+
+        double window =
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.window").getAsDouble();
+
+        return new OpusGovernor(
+                opusParameters,
+                pool,
+                Math.max(1, (int) Math.round(window * 1_000_000_000D / opusParameters.getOpusFrameNanos())),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.high").getAsDouble(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.low").getAsDouble(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.hold").getAsInt(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.complexity.min")
+                        .getAsInt(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.bitrate.min")
+                        .getAsInt(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.governor.bitrate.step")
+                        .getAsInt()
+        );
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-capacity ring of reusable Opus packet slots.
+ *
+ * Every slot owns a preallocated buffer the encoder writes into directly, so queueing a packet allocates nothing.
+ * Safe for exactly one producer (claim/publish/discard) and one consumer (peek/release) without locking, in the same
+ * way as AudioBuffer: each side advances only its own monotonic counter, after it is done with the slot.
+ */
+public class OpusPacketRing {
+    private final Packet[] packets;
+
+    // Total packets ever published/released.  Owned by the producer and consumer, respectively.
+    private volatile long writePosition = 0L;
+    private volatile long readPosition = 0L;
+
+    // Packets before this position were discarded by the producer; the consumer skips them.
+    private volatile long discardPosition = 0L;
+
+    /**
+     * @param capacity Slot count
+     * @param maxPacketLength Size of each slot's buffer, in bytes
+     */
+    public OpusPacketRing(int capacity, int maxPacketLength) {
+        if (capacity <= 0) throw new IllegalArgumentException("invalid capacity: " + capacity);
+        if (maxPacketLength <= 0) throw new IllegalArgumentException("invalid max packet length: " + maxPacketLength);
+
+        this.packets = new Packet[capacity];
+        for (int i = 0; i < capacity; i ++) packets[i] = new Packet(maxPacketLength);
+    }
+
+    public int getCapacity() {
+        return packets.length;
+    }
+
+    /**
+     * Finds the count of queued packets, including discarded packets the consumer has not skipped yet.
+     * @return Queued packets
+     */
+    public int size() {
+        return (int) (writePosition - readPosition);
+    }
+
+    public boolean isEmpty() {
+        return writePosition == readPosition;
+    }
+
+    /**
+     * Gets the next free slot for the producer to fill.  The slot is not visible to the consumer until publish().
+     * @return Free slot, or null if the ring is full
+     */
+    public Packet claim() {
+        return claim(0);
+    }
+
+    /**
+     * Gets a free slot past the next one, so several slots can be filled before publishing them together.
+     * @param ahead Slots to skip past the next free slot
+     * @return Free slot, or null if the ring doesn't have that many free slots
+     */
+    public Packet claim(int ahead) {
+        long position = this.writePosition + ahead;
+        if (position - readPosition >= packets.length) return null;
+
+        return packets[index(position)];
+    }
+
+    /**
+     * Publishes the slot returned by the last claim().
+     */
+    public void publish() {
+        publish(1);
+    }
+
+    /**
+     * Publishes the next slots, in order.
+     * @param count Slot count
+     */
+    public void publish(int count) {
+        long position = this.writePosition;
+        if (position + count - readPosition > packets.length) throw new IllegalStateException("ring full");
+
+        this.writePosition = position + count;
+    }
+
+    /**
+     * Discards every packet published so far.  Called by the producer; slots are freed as the consumer skips them.
+     */
+    public void discard() {
+        this.discardPosition = writePosition;
+    }
+
+    /**
+     * Gets the oldest queued packet for the consumer, skipping discarded packets.
+     * @return Oldest packet, or null if the ring is empty
+     */
+    public Packet peek() {
+        long position = this.readPosition;
+        long discardPosition = this.discardPosition;
+
+        if (position < discardPosition) this.readPosition = position = discardPosition;
+
+        if (position == writePosition) return null;
+
+        return packets[index(position)];
+    }
+
+    /**
+     * Releases the packet returned by the last peek(), freeing its slot for the producer.
+     */
+    public void release() {
+        long position = this.readPosition;
+        if (position == writePosition) throw new IllegalStateException("ring empty");
+
+        this.readPosition = position + 1;
+    }
+
+    private int index(long position) {
+        return (int) (position % packets.length);
+    }
+
+    public static final class Packet {
+        private final byte[] data;
+        private final ByteBuffer buffer;
+
+        private int length;
+        private int samples;
+
+        private long position;
+        private long timestamp;
+
+        private Packet(int maxPacketLength) {
+            this.data = new byte[maxPacketLength];
+            this.buffer = ByteBuffer.wrap(data);
+        }
+
+        /**
+         * Gets the slot's buffer, positioned at 0 with its limit at the slot size, for the encoder to write into.
+         * @return Slot buffer
+         */
+        public ByteBuffer getBuffer() {
+            buffer.clear();
+            return buffer;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Gets the length of the packet, in bytes.
+         * @return Packet length
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the count of (interleaved) samples encoded in this packet.
+         * @return Sample count
+         */
+        public int getSamples() {
+            return samples;
+        }
+
+        /**
+         * Gets the position of the packet's first sample in the producer's input, in (interleaved) samples.
+         * @return Position
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Gets the System.nanoTime() at which the packet's first sample entered the producer.
+         * @return Timestamp
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public void stamp(long position, long timestamp) {
+            this.position = position;
+            this.timestamp = timestamp;
+        }
+
+        public void set(int length, int samples) {
+            if (length < 0 || length > data.length) throw new IllegalArgumentException("invalid length: " + length);
+
+            this.length = length;
+            this.samples = samples;
+        }
+    }
+}
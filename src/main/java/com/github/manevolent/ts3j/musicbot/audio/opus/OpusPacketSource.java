@@ -0,0 +1,30 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import java.io.IOException;
+
+/**
+ * A sequence of Opus packets at 48KHz, read one packet at a time.
+ */
+public interface OpusPacketSource extends AutoCloseable {
+    /**
+     * Longest packet a source returns, in bytes; enough for any packet of up to 60ms.
+     */
+    int MAXIMUM_PACKET_SIZE = 4096;
+
+    /**
+     * Gets the channel count of the packets.
+     * @return Channels
+     */
+    int getChannels();
+
+    /**
+     * Reads the next packet into a buffer, so that a reader can reuse one buffer for every packet.
+     * @param buffer Buffer of at least MAXIMUM_PACKET_SIZE bytes
+     * @return Packet length, or -1 at the end of the sequence
+     * @throws IOException if the packet could not be read, or is longer than MAXIMUM_PACKET_SIZE
+     */
+    int next(byte[] buffer) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
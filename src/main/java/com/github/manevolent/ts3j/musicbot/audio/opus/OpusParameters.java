@@ -3,29 +3,69 @@ package com.github.manevolent.ts3j.musicbot.audio.opus;
 import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
 import com.google.gson.JsonObject;
 
+import java.util.Objects;
+
 public class OpusParameters {
-    private final int opusFrameRate;
+    // Frame durations Opus supports, in milliseconds
+    private static final float[] OPUS_PERMITTED_FRAME_TIMES = { 2.5F, 5F, 10F, 20F, 40F, 60F };
+
+    private final float opusFrameTime;
     private final int opusBitrate;
     private final int opusComplexity;
     private final int opusPacketLossPercent;
     private final boolean opusVbr;
     private final boolean opusFec;
     private final boolean opusMusic;
+    private final boolean opusDirect;
+    private final float opusSilenceThreshold;
+    private final int opusBatch;
 
-    public OpusParameters(int opusFrameRate, int opusBitrate,
+    /**
+     * @param opusFrameTime Frame duration, in milliseconds: 2.5, 5, 10, 20, 40 or 60
+     * @param opusBatch Most frames to encode per call to the encoder
+     */
+    public OpusParameters(float opusFrameTime, int opusBitrate,
                           int opusComplexity, int opusPacketLossPercent,
-                          boolean opusVbr, boolean opusFec, boolean opusMusic) {
-        this.opusFrameRate = opusFrameRate;
+                          boolean opusVbr, boolean opusFec, boolean opusMusic,
+                          boolean opusDirect, float opusSilenceThreshold,
+                          int opusBatch) {
+        boolean permitted = false;
+        for (float frameTime : OPUS_PERMITTED_FRAME_TIMES) permitted |= frameTime == opusFrameTime;
+        if (!permitted) throw new IllegalArgumentException("Invalid Opus frame time: " + opusFrameTime + "ms");
+
+        if (opusBatch <= 0) throw new IllegalArgumentException("invalid Opus batch: " + opusBatch);
+
+        this.opusFrameTime = opusFrameTime;
         this.opusBitrate = opusBitrate;
         this.opusComplexity = opusComplexity;
         this.opusPacketLossPercent = opusPacketLossPercent;
         this.opusVbr = opusVbr;
         this.opusFec = opusFec;
         this.opusMusic = opusMusic;
+        this.opusDirect = opusDirect;
+        this.opusSilenceThreshold = opusSilenceThreshold;
+        this.opusBatch = opusBatch;
     }
 
-    public int getOpusFrameTime() {
-        return 1000 / opusFrameRate;
+    /**
+     * Gets the frame duration.
+     * @return Frame time, in milliseconds
+     */
+    public float getOpusFrameTime() {
+        return opusFrameTime;
+    }
+
+    public long getOpusFrameNanos() {
+        return (long) (opusFrameTime * 1_000_000D);
+    }
+
+    /**
+     * Gets the frame size at a sample rate.
+     * @param sampleRate Sample rate
+     * @return Frame size, in samples per channel
+     */
+    public int getOpusFrameSize(int sampleRate) {
+        return (int) Math.round(sampleRate * (double) opusFrameTime / 1000D);
     }
 
     public int getOpusBitrate() {
@@ -52,15 +92,103 @@ public class OpusParameters {
         return opusMusic;
     }
 
+    /**
+     * Finds if frames should be encoded through direct buffers (see DirectOpusEncoder).
+     * @return true if direct, false otherwise
+     */
+    public boolean isOpusDirect() {
+        return opusDirect;
+    }
+
+    /**
+     * Gets the peak amplitude at or below which a frame counts as silence, and is not encoded (see
+     * TeamspeakFastMixerSink).  Negative if silence detection is disabled.
+     * @return Silence threshold
+     */
+    public float getOpusSilenceThreshold() {
+        return opusSilenceThreshold;
+    }
+
+    /**
+     * Gets the most frames encoded per call to the encoder (see OpusEncoder.encode(float[], int, int, ByteBuffer[],
+     * int[])).  Batching only saves per-call overhead; frames are still encoded and sent one by one.
+     * @return Frames per batch
+     */
+    public int getOpusBatch() {
+        return opusBatch;
+    }
+
+    /**
+     * Describes the parameters that decide the encoded bitstream.  Direct encoding and batching only change how frames
+     * go through the encoder, not what comes out, so two parameter sets with the same key produce the same packets.
+     * @return Bitstream key
+     */
+    public String getBitstreamKey() {
+        return "frameTime=" + opusFrameTime +
+                ", bitrate=" + opusBitrate +
+                ", complexity=" + opusComplexity +
+                ", packetLossPercent=" + opusPacketLossPercent +
+                ", vbr=" + opusVbr +
+                ", fec=" + opusFec +
+                ", music=" + opusMusic +
+                ", silenceThreshold=" + opusSilenceThreshold;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OpusParameters)) return false;
+
+        OpusParameters other = (OpusParameters) o;
+
+        return Float.compare(opusFrameTime, other.opusFrameTime) == 0 &&
+                opusBitrate == other.opusBitrate &&
+                opusComplexity == other.opusComplexity &&
+                opusPacketLossPercent == other.opusPacketLossPercent &&
+                opusVbr == other.opusVbr &&
+                opusFec == other.opusFec &&
+                opusMusic == other.opusMusic &&
+                opusDirect == other.opusDirect &&
+                Float.compare(opusSilenceThreshold, other.opusSilenceThreshold) == 0 &&
+                opusBatch == other.opusBatch;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                opusFrameTime, opusBitrate, opusComplexity, opusPacketLossPercent,
+                opusVbr, opusFec, opusMusic, opusDirect, opusSilenceThreshold, opusBatch
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "OpusParameters{" +
+                "frameTime=" + opusFrameTime +
+                ", bitrate=" + opusBitrate +
+                ", complexity=" + opusComplexity +
+                ", packetLossPercent=" + opusPacketLossPercent +
+                ", vbr=" + opusVbr +
+                ", fec=" + opusFec +
+                ", music=" + opusMusic +
+                ", direct=" + opusDirect +
+                ", silenceThreshold=" + opusSilenceThreshold +
+                ", batch=" + opusBatch +
+                "}";
+    }
+
     public static OpusParameters fromJson(JsonObject defaultConfiguration, JsonObject serverConfiguration) {
         return new OpusParameters(
-                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.framerate").getAsInt(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.frametime").getAsFloat(),
                 ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.bitrate").getAsInt(),
                 ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.complexity").getAsInt(),
                 ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.plc").getAsInt(),
                 ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.vbr").getAsBoolean(),
                 ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.fec").getAsBoolean(),
-                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.music").getAsBoolean()
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.music").getAsBoolean(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.direct").getAsBoolean(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.silence.threshold").getAsFloat(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.batch").getAsInt()
         );
     }
 }
\ No newline at end of file
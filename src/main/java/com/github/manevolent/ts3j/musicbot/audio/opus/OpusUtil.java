@@ -20,6 +20,46 @@ public class OpusUtil {
         else return returnCode;
     }
 
+    /**
+     * Finds the duration of an Opus packet from its TOC byte (RFC 6716 section 3.1), without decoding it.
+     * @param packet Packet
+     * @param length Packet length, in bytes
+     * @return Samples per channel at 48KHz, or -1 if the packet is malformed
+     */
+    public static int getPacketSamples(byte[] packet, int length) {
+        if (length < 1) return -1;
+
+        int toc = packet[0] & 0xFF;
+        int config = toc >> 3;
+
+        int frameSamples;
+        if (config < 12) // SILK-only: 10, 20, 40, 60ms
+            frameSamples = (config & 3) == 3 ? 2880 : 480 << (config & 3);
+        else if (config < 16) // Hybrid: 10, 20ms
+            frameSamples = (config & 1) == 1 ? 960 : 480;
+        else // CELT-only: 2.5, 5, 10, 20ms
+            frameSamples = 120 << (config & 3);
+
+        int frames;
+        switch (toc & 3) {
+            case 0:
+                frames = 1;
+                break;
+            case 3:
+                if (length < 2) return -1;
+                frames = packet[1] & 0x3F;
+                break;
+            default:
+                frames = 2;
+                break;
+        }
+
+        int samples = frames * frameSamples;
+
+        // At most 120ms per packet
+        return frames > 0 && samples <= 5760 ? samples : -1;
+    }
+
     public static String getVersion() {
         return Opus.INSTANCE.opus_get_version_string();
     }
@@ -0,0 +1,285 @@
+package com.github.manevolent.ts3j.musicbot.audio.opus;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Reads the Opus packets of a WebM (Matroska) stream as-is, without decoding them.
+ *
+ * Only as much of Matroska is understood as is needed to find the first Opus track and walk its blocks in stream
+ * order: the EBML header and everything but the track list and clusters are skipped, so the stream is never seeked.
+ * Segments and clusters of unknown size (live streams) are supported.  All lacing types are supported.
+ */
+public class WebmOpusDemuxer implements OpusPacketSource {
+    private static final int SEGMENT = 0x18538067;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_NUMBER = 0xD7;
+    private static final int CODEC_ID = 0x86;
+    private static final int CODEC_PRIVATE = 0x63A2;
+    private static final int CLUSTER = 0x1F43B675;
+    private static final int BLOCK_GROUP = 0xA0;
+    private static final int BLOCK = 0xA1;
+    private static final int SIMPLE_BLOCK = 0xA3;
+
+    private static final String OPUS_CODEC_ID = "A_OPUS";
+    private static final long UNKNOWN_SIZE = -1L;
+
+    // Sanity limit for a single element read into memory
+    private static final int MAXIMUM_ELEMENT_SIZE = 1024 * 1024;
+
+    private final DataInputStream in;
+    private final Queue<byte[]> packets = new ArrayDeque<>(); // Laced packets of the current block
+
+    private long trackNumber = -1L;
+    private int channels, preSkip;
+
+    private int vintLength; // Length of the last variable-size integer read, in bytes
+
+    public WebmOpusDemuxer(InputStream inputStream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(inputStream));
+
+        readTracks();
+    }
+
+    /**
+     * Reads up to the first cluster, selecting the first Opus track.
+     */
+    private void readTracks() throws IOException {
+        long entryTrack = -1L;
+        String entryCodec = null;
+        byte[] entryPrivate = null;
+
+        while (true) {
+            int id = readId();
+            if (id < 0) throw new EOFException("no clusters");
+
+            long size = readSize();
+
+            if (id == TRACK_ENTRY || id == CLUSTER) {
+                // A track entry's fields are complete once the next entry or the first cluster starts
+                if (trackNumber < 0 && OPUS_CODEC_ID.equals(entryCodec) && entryTrack >= 0)
+                    selectTrack(entryTrack, entryPrivate);
+
+                entryTrack = -1L;
+                entryCodec = null;
+                entryPrivate = null;
+
+                if (id == CLUSTER) {
+                    if (trackNumber < 0) throw new IOException("no Opus track");
+                    return; // Now inside the first cluster
+                }
+            } else if (id == TRACK_NUMBER) {
+                entryTrack = readUnsigned(size);
+            } else if (id == CODEC_ID) {
+                entryCodec = new String(readBytes(size), StandardCharsets.US_ASCII).trim();
+            } else if (id == CODEC_PRIVATE) {
+                entryPrivate = readBytes(size);
+            } else if (id != SEGMENT && id != TRACKS) {
+                skip(size);
+            }
+        }
+    }
+
+    private void selectTrack(long trackNumber, byte[] opusHead) throws IOException {
+        // OpusHead: magic(8) version(1) channels(1) pre-skip(2, LE) input rate(4) gain(2) mapping family(1)
+        if (opusHead == null || opusHead.length < 19 ||
+                !new String(opusHead, 0, 8, StandardCharsets.US_ASCII).equals("OpusHead"))
+            throw new IOException("invalid Opus codec private data");
+
+        this.trackNumber = trackNumber;
+        this.channels = opusHead[9] & 0xFF;
+        this.preSkip = (opusHead[10] & 0xFF) | ((opusHead[11] & 0xFF) << 8);
+    }
+
+    /**
+     * Gets the channel count of the Opus track.
+     * @return Channels
+     */
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Gets the samples (per channel, at 48KHz) a decoder should discard from the start of the track.
+     * @return Pre-skip
+     */
+    public int getPreSkip() {
+        return preSkip;
+    }
+
+    /**
+     * Reads the next packet of the Opus track.
+     * @return Packet, or null at the end of the stream
+     * @throws IOException
+     */
+    @Override
+    public int next(byte[] buffer) throws IOException {
+        while (packets.isEmpty()) {
+            int id = readId();
+            if (id < 0) return -1;
+
+            long size = readSize();
+
+            if (id == SIMPLE_BLOCK || id == BLOCK)
+                readBlock(size);
+            else if (id != SEGMENT && id != CLUSTER && id != BLOCK_GROUP)
+                skip(size);
+        }
+
+        byte[] packet = packets.poll();
+        if (packet.length > MAXIMUM_PACKET_SIZE) throw new IOException("packet too long: " + packet.length);
+
+        System.arraycopy(packet, 0, buffer, 0, packet.length);
+        return packet.length;
+    }
+
+    private void readBlock(long size) throws IOException {
+        if (size == UNKNOWN_SIZE || size > MAXIMUM_ELEMENT_SIZE) throw new IOException("invalid block size: " + size);
+
+        long track = readVint(false);
+        int remaining = (int) size - vintLength;
+
+        if (track != trackNumber) {
+            skip(remaining);
+            return;
+        }
+
+        in.readShort(); // Timecode, relative to the cluster
+        int flags = in.readUnsignedByte();
+        remaining -= 3;
+
+        int lacing = (flags >> 1) & 3;
+        if (lacing == 0) {
+            packets.add(readBytes(remaining));
+            return;
+        }
+
+        int frames = in.readUnsignedByte() + 1;
+        remaining--;
+
+        int[] sizes = new int[frames];
+        int total = 0;
+
+        switch (lacing) {
+            case 1: // Xiph
+                for (int i = 0; i < frames - 1; i ++) {
+                    int value;
+                    do {
+                        value = in.readUnsignedByte();
+                        remaining--;
+                        sizes[i] += value;
+                    } while (value == 255);
+                    total += sizes[i];
+                }
+                break;
+            case 2: // Fixed
+                for (int i = 0; i < frames - 1; i ++) total += sizes[i] = remaining / frames;
+                break;
+            case 3: // EBML; the first size, then signed differences from the previous size
+                for (int i = 0; i < frames - 1; i ++) {
+                    long value = readVint(false);
+                    remaining -= vintLength;
+
+                    if (i == 0) sizes[i] = (int) value;
+                    else sizes[i] = sizes[i - 1] + (int) (value - ((1L << (7 * vintLength - 1)) - 1));
+
+                    total += sizes[i];
+                }
+                break;
+        }
+
+        sizes[frames - 1] = remaining - total;
+
+        for (int frameSize : sizes) {
+            if (frameSize < 0) throw new IOException("invalid lacing");
+            packets.add(readBytes(frameSize));
+        }
+    }
+
+    /**
+     * Reads an element ID, keeping its length marker bits.
+     * @return ID, or -1 at the end of the stream
+     */
+    private int readId() throws IOException {
+        int first = in.read();
+        if (first < 0) return -1;
+
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (length < 1 || length > 4) throw new IOException("invalid element ID: " + first);
+
+        int id = first;
+        for (int i = 1; i < length; i ++) id = (id << 8) | in.readUnsignedByte();
+
+        return id;
+    }
+
+    /**
+     * Reads an element data size.
+     * @return Size, or UNKNOWN_SIZE
+     */
+    private long readSize() throws IOException {
+        return readVint(true);
+    }
+
+    private long readVint(boolean size) throws IOException {
+        int first = in.readUnsignedByte();
+
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (length < 1 || length > 8) throw new IOException("invalid variable-size integer: " + first);
+
+        long value = first & (0xFF >> length);
+        boolean allOnes = value == (0xFF >> length);
+
+        for (int i = 1; i < length; i ++) {
+            int b = in.readUnsignedByte();
+            allOnes &= b == 0xFF;
+            value = (value << 8) | b;
+        }
+
+        vintLength = length;
+
+        return size && allOnes ? UNKNOWN_SIZE : value;
+    }
+
+    private long readUnsigned(long size) throws IOException {
+        if (size < 0 || size > 8) throw new IOException("invalid integer size: " + size);
+
+        long value = 0L;
+        for (int i = 0; i < size; i ++) value = (value << 8) | in.readUnsignedByte();
+
+        return value;
+    }
+
+    private byte[] readBytes(long size) throws IOException {
+        if (size < 0 || size > MAXIMUM_ELEMENT_SIZE) throw new IOException("invalid element size: " + size);
+
+        byte[] bytes = new byte[(int) size];
+        in.readFully(bytes);
+
+        return bytes;
+    }
+
+    private void skip(long size) throws IOException {
+        if (size == UNKNOWN_SIZE) throw new IOException("cannot skip element of unknown size");
+
+        while (size > 0) {
+            long skipped = in.skip(size);
+
+            if (skipped <= 0) {
+                in.readUnsignedByte(); // Throws EOFException at the end of the stream
+                skipped = 1;
+            }
+
+            size -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
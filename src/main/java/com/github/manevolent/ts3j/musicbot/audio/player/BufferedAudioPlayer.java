@@ -9,8 +9,15 @@ public abstract class BufferedAudioPlayer extends AudioPlayer {
     private final AudioBuffer buffer;
 
     public BufferedAudioPlayer(int bufferSize) {
+        this(bufferSize, false);
+    }
+
+    /**
+     * @param direct true to buffer samples outside the Java heap (see AudioBuffer)
+     */
+    public BufferedAudioPlayer(int bufferSize, boolean direct) {
         this.bufferSize = bufferSize;
-        this.buffer = new AudioBuffer(bufferSize);
+        this.buffer = new AudioBuffer(bufferSize, direct);
     }
 
     @Override
@@ -0,0 +1,135 @@
+package com.github.manevolent.ts3j.musicbot.audio.player;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.PacketMixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusDecoder;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusPacketSource;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusUtil;
+
+import java.io.IOException;
+
+/**
+ * Plays Opus packets (the track of a WebM stream, or a PacketCache entry) at 48KHz stereo, either as packets passed
+ * through to the sink (see PacketMixerChannel) or, when the mixer needs samples, decoded with libopus.  In both cases
+ * FFmpeg and resampling are skipped entirely.
+ */
+public class OpusPacketPlayer extends BufferedAudioPlayer implements PacketMixerChannel {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int MAXIMUM_PACKET_SAMPLES = 5760; // 120ms, per channel
+
+    private final OpusPacketSource source;
+    private final OpusDecoder decoder;
+    private final float[] decodeBuffer = new float[MAXIMUM_PACKET_SAMPLES * CHANNELS];
+
+    private final byte[] packet = new byte[OpusPacketSource.MAXIMUM_PACKET_SIZE]; // Next packet, if read ahead
+    private int packetLength = -1; // -1 if there is none
+    private int packetSamples; // Duration of the next packet (interleaved)
+    private boolean decoderInSync = true; // Whether the decoder has seen every packet so far
+    private volatile boolean eof = false, closed = false;
+
+    public OpusPacketPlayer(OpusPacketSource source, int bufferSize) {
+        super(Math.max(bufferSize, MAXIMUM_PACKET_SAMPLES * CHANNELS));
+
+        if (source.getChannels() < 1 || source.getChannels() > 2)
+            throw new IllegalArgumentException("unsupported Opus channel count: " + source.getChannels());
+
+        this.source = source;
+        this.decoder = new OpusDecoder(SAMPLE_RATE, MAXIMUM_PACKET_SAMPLES, CHANNELS);
+    }
+
+    @Override
+    public int peekPacket() throws IOException {
+        while (packetLength < 0) {
+            if (eof || closed) return -1;
+
+            int length = source.next(packet);
+
+            if (length < 0) {
+                eof = true;
+                return -1;
+            }
+
+            int samples = OpusUtil.getPacketSamples(packet, length);
+            if (samples <= 0) continue; // Malformed; drop it
+
+            this.packetLength = length;
+            this.packetSamples = samples * CHANNELS;
+        }
+
+        return packetSamples;
+    }
+
+    @Override
+    public int readPacket(byte[] buffer) throws IOException {
+        if (peekPacket() < 0) throw new IllegalStateException("no packet");
+
+        int length = packetLength;
+        if (length > buffer.length) throw new IOException("packet too long: " + length + " > " + buffer.length);
+
+        System.arraycopy(packet, 0, buffer, 0, length);
+        packetLength = -1;
+
+        // The decoder missed this packet; it has to start over if samples are needed again.  Samples still buffered
+        // from earlier packets would now play out of order, so they go too.
+        decoderInSync = false;
+        getBuffer().skip(getBuffer().availableOutput());
+
+        return length;
+    }
+
+    @Override
+    protected boolean processBuffer() throws IOException {
+        if (peekPacket() < 0) return false;
+
+        if (!decoderInSync) {
+            decoder.reset();
+            decoderInSync = true;
+        }
+
+        int samples = decoder.decode(packet, packetLength, decodeBuffer);
+        packetLength = -1;
+
+        getBuffer().write(decodeBuffer, samples * CHANNELS);
+
+        return true;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    @Override
+    public int getChannels() {
+        return CHANNELS;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return !closed && (!eof || packetLength >= 0 || getBuffer().availableOutput() > 0);
+    }
+
+    @Override
+    public boolean stop() {
+        return kill();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (closed) return;
+
+        closed = true;
+        eof = true;
+
+        try {
+            source.close();
+        } finally {
+            decoder.close();
+        }
+    }
+}
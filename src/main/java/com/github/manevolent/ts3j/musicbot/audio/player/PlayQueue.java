@@ -0,0 +1,400 @@
+package com.github.manevolent.ts3j.musicbot.audio.player;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.PacketMixerChannel;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plays tracks one after another, without gaps between them.
+ *
+ * The track after the current one is prefetched on a background executor while the current one plays: opened (its
+ * download resolved, its stream connected and probed, its resampler set up) and pre-buffered, which also warms its
+ * resampler.  When the current track runs out in the middle of a read, the rest of the read is filled from the next
+ * one, so the switch is sample-accurate.  Only if the next track isn't ready yet is there a gap, which the mixer
+ * doesn't wait out.  A track that takes longer than the timeout to open is cancelled and skipped, so that it doesn't
+ * hold up the queue.
+ *
+ * Packet tracks (see PacketMixerChannel) are prefetched up to their first packet, and passed through like any packet
+ * channel.  A queue that has run dry is finished, as the mixer removes it: add() refuses further tracks, and a new
+ * queue has to be added to the mixer instead.
+ */
+public class PlayQueue extends AudioPlayer implements PacketMixerChannel {
+    private final int sampleRate, channels;
+    private final ExecutorService executor;
+    private final int prebufferSize;
+    private final long timeoutNanos;
+
+    private final Deque<Track> pending = new ArrayDeque<>(); // Head is next, and prefetched
+    private Track current; // Prefetched and playing
+
+    private boolean finished = false, closed = false;
+
+    /**
+     * @param executor Executor to prefetch tracks on
+     * @param prebufferSize Samples (interleaved) to read ahead from the next track
+     * @param timeoutNanos Time a track may take to open, once its prefetch has started, before it is skipped
+     */
+    public PlayQueue(int sampleRate, int channels, ExecutorService executor, int prebufferSize, long timeoutNanos) {
+        if (prebufferSize < 0) throw new IllegalArgumentException("invalid prebuffer size: " + prebufferSize);
+        if (timeoutNanos <= 0) throw new IllegalArgumentException("invalid timeout: " + timeoutNanos);
+
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.executor = executor;
+        this.prebufferSize = prebufferSize - (prebufferSize % channels);
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Queues a track, and starts prefetching it if it is next.
+     * @param track Track
+     * @return true if queued, false if the queue is finished or closed
+     */
+    public synchronized boolean add(Track track) {
+        if (finished || closed) return false;
+
+        pending.addLast(track);
+        prefetchNext();
+
+        return true;
+    }
+
+    /**
+     * Skips the current track, or the next one if none is playing yet.
+     * @return true if a track was skipped, false if the queue is empty
+     */
+    public synchronized boolean skip() {
+        if (current != null) {
+            Logger.getGlobal().info("Skipped " + current.getName());
+            finish();
+        } else {
+            Track next = pending.pollFirst();
+            if (next == null) return false;
+
+            Logger.getGlobal().info("Skipped " + next.getName());
+            next.discard();
+        }
+
+        prefetchNext();
+
+        return true;
+    }
+
+    /**
+     * Gets the count of tracks queued, including the current one.
+     * @return Track count
+     */
+    public synchronized int size() {
+        return pending.size() + (current != null ? 1 : 0);
+    }
+
+    private void prefetchNext() {
+        Track next = pending.peekFirst();
+        if (next == null || next.prefetch != null) return;
+
+        next.prefetch = executor.submit(() -> {
+            // Timed from here, as the executor is shared and the track may have waited its turn
+            next.started = System.nanoTime();
+            next.load(sampleRate, channels, prebufferSize);
+            return null;
+        });
+    }
+
+    /**
+     * Skips the next track if it has been opening for longer than the timeout.  Cancelling interrupts the prefetch,
+     * which frees its thread for other queues when the loader is blocked interruptibly.
+     */
+    private void expire() {
+        Track next = pending.peekFirst();
+        if (next == null || next.prefetch == null || next.prefetch.isDone()) return;
+
+        long started = next.started;
+        if (started == 0L || System.nanoTime() - started < timeoutNanos) return;
+
+        Logger.getGlobal().warning("Timed out opening " + next.getName());
+
+        pending.pollFirst();
+        next.prefetch.cancel(true);
+        next.discard();
+
+        prefetchNext();
+    }
+
+    /**
+     * Makes the next track current, if it is prefetched.  Tracks that failed or timed out opening are skipped.
+     * @return true if there is a current track, false otherwise
+     */
+    private boolean advance() {
+        while (current == null) {
+            expire();
+
+            Track next = pending.peekFirst();
+            if (next == null || !next.prefetch.isDone()) return false;
+
+            pending.pollFirst();
+
+            try {
+                next.prefetch.get();
+
+                current = next;
+                Logger.getGlobal().info("Playing " + next.getName());
+            } catch (CancellationException e) {
+                next.discard();
+            } catch (ExecutionException e) {
+                Logger.getGlobal().log(Level.WARNING, "Problem opening " + next.getName(), e.getCause());
+                next.discard();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                next.discard();
+            }
+
+            prefetchNext();
+        }
+
+        return true;
+    }
+
+    /**
+     * Closes the current track.
+     */
+    private void finish() {
+        current.discard();
+        current = null;
+    }
+
+    private void fail(Throwable e) {
+        Logger.getGlobal().log(Level.WARNING, "Problem playing " + current.getName(), e);
+        finish();
+    }
+
+    @Override
+    public synchronized int available() {
+        expire();
+
+        while (current != null || advance()) {
+            if (current.isPlaying()) {
+                int available = current.available();
+
+                // The next track is read on into when this one ends
+                Track next = pending.peekFirst();
+                if (next != null && next.prefetch != null && next.prefetch.isDone() && next.channel != null)
+                    available += next.available();
+
+                return available;
+            }
+
+            finish();
+        }
+
+        return 0;
+    }
+
+    @Override
+    public synchronized int read(float[] buffer, int offs, int len) {
+        int pos = 0;
+
+        while (pos < len && (current != null || advance())) {
+            try {
+                pos += current.read(buffer, offs + pos, len - pos);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                continue;
+            }
+
+            if (pos < len) {
+                if (current.isPlaying()) break; // Underrun, rather than the end of the track
+
+                finish();
+            }
+        }
+
+        return pos;
+    }
+
+    @Override
+    public synchronized int peekPacket() {
+        while (current != null || advance()) {
+            MixerChannel channel = current.channel;
+
+            // Pre-buffered samples, or a track that isn't packets, is read as samples
+            if (current.headPosition < current.headLength) return 0;
+            if (!(channel instanceof PacketMixerChannel)) {
+                if (channel.isPlaying()) return 0;
+
+                finish();
+                continue;
+            }
+
+            try {
+                int samples = ((PacketMixerChannel) channel).peekPacket();
+                if (samples >= 0) return samples;
+
+                finish();
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        // A track still opening isn't waited for, but it isn't the end of the queue either: read as (no) samples
+        return pending.isEmpty() ? -1 : 0;
+    }
+
+    @Override
+    public synchronized int readPacket(byte[] buffer) throws IOException {
+        if (current == null || !(current.channel instanceof PacketMixerChannel))
+            throw new IllegalStateException("no packet");
+
+        return ((PacketMixerChannel) current.channel).readPacket(buffer);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannels() {
+        return channels;
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public synchronized boolean isPlaying() {
+        if (closed) return false;
+
+        boolean playing = current != null || !pending.isEmpty();
+        if (!playing) finished = true; // The mixer removes it now
+
+        return playing;
+    }
+
+    @Override
+    public boolean stop() {
+        return kill();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+
+        closed = true;
+
+        if (current != null) finish();
+
+        for (Track track : pending) track.discard();
+        pending.clear();
+    }
+
+    /**
+     * A queued track, opened when it is prefetched.
+     */
+    public static final class Track {
+        private final String name;
+        private final Loader loader;
+
+        private Future<?> prefetch; // Set by the queue
+        private volatile long started; // When the prefetch started running, or 0
+        private boolean discarded = false;
+
+        // Written by the prefetch, read once it is done
+        private MixerChannel channel;
+        private float[] head;
+        private int headPosition, headLength;
+
+        public Track(String name, Loader loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private void load(int sampleRate, int channels, int prebufferSize) throws Exception {
+            MixerChannel channel = loader.open();
+
+            try {
+                if (channel.getSampleRate() != sampleRate || channel.getChannels() != channels)
+                    throw new IllegalArgumentException("format mismatch");
+
+                if (channel instanceof PacketMixerChannel) {
+                    // Packets have to stay packets to be passed through, so only the first is read ahead
+                    ((PacketMixerChannel) channel).peekPacket();
+                } else if (prebufferSize > 0) {
+                    head = new float[prebufferSize];
+                    headLength = channel.read(head, 0, prebufferSize);
+                }
+            } catch (Exception e) {
+                close(channel);
+                throw e;
+            }
+
+            synchronized (this) {
+                if (discarded) close(channel);
+                else this.channel = channel;
+            }
+        }
+
+        private int available() {
+            return (headLength - headPosition) + channel.available();
+        }
+
+        private boolean isPlaying() {
+            return headPosition < headLength || channel.isPlaying();
+        }
+
+        private int read(float[] buffer, int offs, int len) throws IOException {
+            int read = 0;
+
+            if (headPosition < headLength) {
+                read = Math.min(len, headLength - headPosition);
+                System.arraycopy(head, headPosition, buffer, offs, read);
+                headPosition += read;
+
+                if (headPosition >= headLength) head = null;
+                if (read >= len) return read;
+            }
+
+            return read + channel.read(buffer, offs + read, len - read);
+        }
+
+        private synchronized void discard() {
+            discarded = true;
+
+            if (channel != null) {
+                close(channel);
+                channel = null;
+            }
+        }
+
+        private static void close(MixerChannel channel) {
+            try {
+                channel.close();
+            } catch (Exception e) {
+                Logger.getGlobal().log(Level.WARNING, "Problem closing track", e);
+            }
+        }
+    }
+
+    public interface Loader {
+        /**
+         * Opens the track.  Called on the prefetch executor.
+         * @return Channel, in the queue's format
+         * @throws IOException if the track could not be opened
+         */
+        MixerChannel open() throws IOException;
+    }
+}
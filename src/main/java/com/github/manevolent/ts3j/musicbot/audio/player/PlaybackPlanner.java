@@ -0,0 +1,96 @@
+package com.github.manevolent.ts3j.musicbot.audio.player;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.Mixer;
+import com.github.manevolent.ts3j.musicbot.audio.resample.Resampler;
+import com.github.manevolent.ts3j.musicbot.audio.resample.ResamplerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.logging.Logger;
+
+/**
+ * Plans how a player is brought into a mixer's format, using only the stages the two formats call for: none when the
+ * player already matches (which also keeps packet players passing their packets through), a channel remix when only
+ * the channel count differs, or a resampler.  The plan is logged, so that the work avoided shows.
+ */
+public class PlaybackPlanner {
+    private final ResamplerFactory resamplerFactory;
+
+    public PlaybackPlanner(ResamplerFactory resamplerFactory) {
+        this.resamplerFactory = resamplerFactory;
+    }
+
+    /**
+     * Finds the stage needed to convert one format into another.
+     * @return Stage
+     */
+    public static Stage plan(int sampleRate, int channels, int targetSampleRate, int targetChannels) {
+        if (sampleRate == targetSampleRate) {
+            if (channels == targetChannels) return Stage.NONE;
+            if (RemixedAudioPlayer.isSupported(channels, targetChannels)) return Stage.REMIX;
+        }
+
+        return Stage.RESAMPLE;
+    }
+
+    /**
+     * Builds the chain that plays a player in a mixer's format.
+     * @param player Player
+     * @param target Mixer the player is to be added to
+     * @return The player itself, or the stage wrapping it
+     */
+    public AudioPlayer build(AudioPlayer player, Mixer target) {
+        int targetSampleRate = (int) target.getAudioSampleRate();
+        int targetChannels = target.getAudioChannels();
+
+        Stage stage = plan(player.getSampleRate(), player.getChannels(), targetSampleRate, targetChannels);
+        String description;
+        AudioPlayer built;
+
+        switch (stage) {
+            case NONE:
+                description = "no conversion";
+                built = player;
+                break;
+            case REMIX:
+                description = "remix to " + targetChannels + "ch, no resampling";
+                built = new RemixedAudioPlayer(player, targetChannels);
+                break;
+            case RESAMPLE:
+                Resampler resampler = resamplerFactory.create(
+                        new AudioFormat(player.getSampleRate(), 32, player.getChannels(), true, false),
+                        new AudioFormat(targetSampleRate, 32, targetChannels, true, false),
+                        target.getBufferSize()
+                );
+
+                description = "resample to " + targetSampleRate + "Hz " + targetChannels + "ch with " + resampler;
+                built = new ResampledAudioPlayer(player, resampler, target.getBufferSize());
+                break;
+            default:
+                throw new UnsupportedOperationException(stage.name());
+        }
+
+        Logger.getGlobal().info(
+                "Playing " + player.getName() + " (" + player.getSampleRate() + "Hz " + player.getChannels() + "ch): " +
+                description
+        );
+
+        return built;
+    }
+
+    public enum Stage {
+        /**
+         * Already in the target format.
+         */
+        NONE,
+
+        /**
+         * Same sample rate; only the channel count changes.
+         */
+        REMIX,
+
+        /**
+         * Different sample rate, or a channel layout that only the resampler handles.
+         */
+        RESAMPLE
+    }
+}
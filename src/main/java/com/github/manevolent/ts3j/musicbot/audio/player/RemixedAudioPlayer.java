@@ -0,0 +1,101 @@
+package com.github.manevolent.ts3j.musicbot.audio.player;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Changes the channel count of a player, at its own sample rate: mono is copied to every channel, and a mix down to
+ * mono averages the channels.  Samples are converted as they are read, without buffering.
+ */
+public class RemixedAudioPlayer extends AudioPlayer {
+    private final AudioPlayer player;
+    private final int inputChannels, outputChannels;
+
+    private float[] readBuffer = new float[0];
+    private int pending = 0; // Samples of a frame the player returned only part of
+
+    public RemixedAudioPlayer(AudioPlayer player, int channels) {
+        if (!isSupported(player.getChannels(), channels))
+            throw new IllegalArgumentException("unsupported remix: " + player.getChannels() + " to " + channels);
+
+        this.player = player;
+        this.inputChannels = player.getChannels();
+        this.outputChannels = channels;
+    }
+
+    /**
+     * Finds if a channel count can be remixed into another.
+     * @return true if supported, false otherwise
+     */
+    public static boolean isSupported(int inputChannels, int outputChannels) {
+        return inputChannels > 0 && outputChannels > 0 && (inputChannels == 1 || outputChannels == 1);
+    }
+
+    @Override
+    public int available() {
+        return ((player.available() + pending) / inputChannels) * outputChannels;
+    }
+
+    @Override
+    public int read(float[] buffer, int offs, int len) throws IOException {
+        int frames = len / outputChannels;
+        if (frames <= 0) return 0;
+
+        int samples = frames * inputChannels;
+        if (readBuffer.length < samples) readBuffer = Arrays.copyOf(readBuffer, samples);
+
+        int read = pending + player.read(readBuffer, pending, samples - pending);
+        int readFrames = read / inputChannels;
+
+        if (inputChannels == 1) {
+            for (int frame = 0, pos = offs; frame < readFrames; frame ++) {
+                float sample = readBuffer[frame];
+                for (int ch = 0; ch < outputChannels; ch ++) buffer[pos ++] = sample;
+            }
+        } else {
+            float scale = 1F / inputChannels;
+
+            for (int frame = 0, sample = 0; frame < readFrames; frame ++) {
+                float sum = 0F;
+                for (int ch = 0; ch < inputChannels; ch ++) sum += readBuffer[sample ++];
+                buffer[offs + frame] = sum * scale;
+            }
+        }
+
+        // Keep the start of a frame for the next read
+        pending = read - (readFrames * inputChannels);
+        System.arraycopy(readBuffer, readFrames * inputChannels, readBuffer, 0, pending);
+
+        return readFrames * outputChannels;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return player.isClosed();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return player.isPlaying();
+    }
+
+    @Override
+    public boolean stop() {
+        return player.stop();
+    }
+
+    @Override
+    public void close() throws Exception {
+        player.close();
+    }
+
+    @Override
+    public int getSampleRate() {
+        return player.getSampleRate();
+    }
+
+    @Override
+    public int getChannels() {
+        return outputChannels;
+    }
+}
@@ -14,7 +14,7 @@ public class ResampledAudioPlayer extends BufferedAudioPlayer {
     private boolean closed = false;
 
     public ResampledAudioPlayer(AudioPlayer player, Resampler resampler, int bufferSize) {
-        super(bufferSize);
+        super(bufferSize, resampler.prefersDirectOutput()); // A native resampler writes straight into it
 
         this.player = player;
         this.resampler = resampler;
@@ -13,6 +13,10 @@ import java.nio.FloatBuffer;
 
 /**
  * NOTE: FFmpeg is very picky about what sample count you use. Must divide sample count by channel count.
+ *
+ * Samples are converted straight out of and into direct AudioBuffers (see AudioBuffer.getDirectStore()): swresample
+ * is pointed at their rings, so nothing is copied on the Java side.  Array-backed buffers are copied through native
+ * staging buffers instead, with one bulk copy each way.
  */
 
 // For bugs: https://github.com/bytedeco/javacv/blob/master/src/main/java/org/bytedeco/javacv/FFmpegFrameRecorder.java
@@ -26,14 +30,24 @@ public class FFmpegResampler extends Resampler {
     private final PointerPointer samples_in_ptr;
     private final PointerPointer samples_out_ptr;
 
+    // Float views of the native staging buffers (samples_in[0], samples_out[0])
+    private final FloatBuffer inputStaging, outputStaging;
+
+    // Direct buffers last converted from/to, and pointers to them, moved to each region converted
+    private ByteBuffer inputStore, outputStore;
+    private BytePointer inputStorePointer, outputStorePointer;
+
     private ByteBuffer presampleOutputBuffer = ByteBuffer.allocate(0);
-    private byte[] recvBuffer;
     private final ResamplerProperties input, output;
     private final SampleConverter sampleConverter;
 
     private final Object nativeLock = new Object();
 
     public FFmpegResampler(AudioFormat inputFormat, AudioFormat outputFormat, int bufferSize) {
+        this(inputFormat, outputFormat, bufferSize, Options.DEFAULT);
+    }
+
+    public FFmpegResampler(AudioFormat inputFormat, AudioFormat outputFormat, int bufferSize, Options options) {
         super(inputFormat, outputFormat);
 
         if (inputFormat.getChannels() <= 0)
@@ -106,6 +120,15 @@ public class FFmpegResampler extends Resampler {
             // This forces the output to always be floats.
             avutil.av_opt_set_int(swrContext, "swr_flags", 1, 0);
 
+            // Filter, by engine
+            avutil.av_opt_set_int(swrContext, "resampler", options.getEngine(), 0);
+            if (options.getFilterSize() > 0)
+                avutil.av_opt_set_int(swrContext, "filter_size", options.getFilterSize(), 0);
+            if (options.getPhaseShift() > 0)
+                avutil.av_opt_set_int(swrContext, "phase_shift", options.getPhaseShift(), 0);
+            if (options.getPrecision() > 0)
+                avutil.av_opt_set_double(swrContext, "precision", options.getPrecision(), 0);
+
             if (swresample.swr_init(swrContext) < 0) throw new RuntimeException("failed to initialize resampler");
 
             // Create input buffers
@@ -129,6 +152,11 @@ public class FFmpegResampler extends Resampler {
 
             for (int i = 0; i < samples_in.length; i++)
                 samples_in_ptr.put(i, samples_in[i]);
+
+            inputStaging = samples_in[0].position(0).limit(inputFrameSize).asByteBuffer()
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            outputStaging = samples_out[0].position(0).limit(outputFrameSize).asByteBuffer()
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
         } catch (Throwable e) {
             if (swrContext != null) {
                 swresample.swr_free(swrContext);
@@ -167,10 +195,16 @@ public class FFmpegResampler extends Resampler {
 
             swrContext = null;
             presampleOutputBuffer = null;
-            recvBuffer = null;
+            inputStore = outputStore = null;
+            inputStorePointer = outputStorePointer = null;
         }
     }
 
+    @Override
+    public boolean prefersDirectOutput() {
+        return true; // swresample writes into the ring in place
+    }
+
     @Override
     public int resample(byte[] frameData, int samples, AudioBuffer audioBuffer) {
         int ffmpegNativeLength = samples * 4;
@@ -192,55 +226,60 @@ public class FFmpegResampler extends Resampler {
     }
 
     @Override
-    public int resample(ByteBuffer floatBufferAsBytes, int samples, AudioBuffer out) {
+    public int resample(AudioBuffer in, AudioBuffer out) {
         synchronized (nativeLock) {
-            if (swrContext == null || swrContext.isNull())
-                throw new RuntimeException("swrContext is null; context has been closed.");
-
-            int outputCount =
-                    (int) Math.min(
-                            (samples_out[0].limit() - samples_out[0].position()) / (output.getChannels() * output.getBytesPerSample()),
-                            out.availableInput() // 10/14/18: overflow check
-                    );
-
-            samples_in[0].position(0).put(floatBufferAsBytes.array(), 0, samples * 4);
-
-            //Returns number of samples output per channel, negative value on error
-            int ret = swresample.swr_convert(
-                    swrContext,
-                    samples_out_ptr, outputCount,
-                    samples_in_ptr, samples / input.getChannels()
-            );
+            checkOpen();
 
-            // Check return values
-            if (ret < 0) throw new RuntimeException("swr_convert failed: returned " + ret);
-            else if (ret == 0) return 0; // Do nothing.
+            int channels = input.getChannels();
+            int stored = 0;
 
-            // Read native sample buffer(s) into managed raw byte array
-            // WARNING: This only works if the output format is non-planar (doesn't end with "P")
+            while (in.availableOutput() >= channels) {
+                int frames = in.isDirect() ? in.getContiguousOutput() / channels : 0;
+
+                if (frames > 0) {
+                    // In place, up to the end of the ring
+                    stored += convert(getInputPointer(in.getDirectStore()).position(in.getReadOffset() * 4L),
+                            frames, out);
+
+                    in.skip(frames * channels); // swresample takes all of its input
+                } else {
+                    // Through the staging buffer (also for a frame split by the ring's wrap)
+                    frames = Math.min(in.availableOutput(), inputStaging.capacity()) / channels;
+
+                    inputStaging.clear();
+                    in.read(inputStaging, frames * channels);
+
+                    stored += convert(samples_in[0].position(0), frames, out);
+                }
+            }
+
+            return stored;
+        }
+    }
 
-            int returnedSamples = ret * output.getChannels();
-            int len = returnedSamples * output.getBytesPerSample();
-            if (recvBuffer == null || recvBuffer.length < len)
-                recvBuffer = new byte[len];
+    @Override
+    public int resample(ByteBuffer floatBufferAsBytes, int samples, AudioBuffer out) {
+        synchronized (nativeLock) {
+            checkOpen();
+
+            int channels = input.getChannels();
 
-            samples_out[0].position(0).get(recvBuffer);
+            if (floatBufferAsBytes.isDirect())
+                return convert(getInputPointer(floatBufferAsBytes).position(0), samples / channels, out);
 
-            // Convert raw data to bytes.
-            // This is done by converting the raw samples to floats right out of ffmpeg to preserve the
-            // original quality post-resample.
+            // Through the staging buffer, as much at a time as it holds
+            int chunk = inputStaging.capacity() - (inputStaging.capacity() % channels);
+            int stored = 0;
 
-            FloatBuffer buffer = ByteBuffer.wrap(recvBuffer).order(ByteOrder.nativeOrder()).asFloatBuffer();
-            buffer.position(0).limit(returnedSamples);
+            for (int offs = 0; offs + channels <= samples; offs += chunk) {
+                int len = Math.min(chunk, samples - offs);
+                len -= len % channels;
 
-            // Return total re-sampled bytes to the higher-level audio system.
-            int stored = out.write(buffer, returnedSamples);
+                BytePointer in = samples_in[0].position(0);
+                in.put(floatBufferAsBytes.array(), floatBufferAsBytes.arrayOffset() + (offs * 4), len * 4);
 
-            if (stored != returnedSamples)
-                throw new IllegalStateException(
-                        "failed to store samples in resample buffer: "
-                                + returnedSamples + " != " + stored
-                );
+                stored += convert(in, len / channels, out);
+            }
 
             return stored;
         }
@@ -248,13 +287,143 @@ public class FFmpegResampler extends Resampler {
 
     @Override
     public int flush(AudioBuffer out) {
-        return resample(ByteBuffer.allocate(0), 0, out);
+        synchronized (nativeLock) {
+            checkOpen();
+
+            return convert(samples_in[0].position(0), 0, out);
+        }
+    }
+
+    private void checkOpen() {
+        if (swrContext == null || swrContext.isNull())
+            throw new RuntimeException("swrContext is null; context has been closed.");
+    }
+
+    /**
+     * Converts frames in native memory into an output buffer: in place if it is direct, wrapping around its ring in a
+     * second call, or through the output staging buffer otherwise.  Output that doesn't fit is held back by
+     * swresample until the next call.
+     * @param in Input frames
+     * @param inFrames Input frame count
+     * @param out Output buffer
+     * @return Samples written to the output buffer
+     */
+    private int convert(BytePointer in, int inFrames, AudioBuffer out) {
+        int channels = output.getChannels();
+
+        samples_in_ptr.put(0, in);
+
+        if (out.isDirect()) {
+            BytePointer outPointer = getOutputPointer(out.getDirectStore());
+            int stored = 0, outFrames, ret;
+
+            do {
+                outFrames = out.getContiguousInput() / channels;
+                samples_out_ptr.put(0, outPointer.position(out.getWriteOffset() * 4L));
+
+                ret = swrConvert(outFrames, inFrames);
+                out.commitWrite(ret * channels);
+                stored += ret * channels;
+
+                inFrames = 0; // Only drains what was held back from here on
+            } while (outFrames > 0 && ret == outFrames);
+
+            return stored;
+        } else {
+            int outFrames = Math.min(outputStaging.capacity(), out.availableInput()) / channels;
+            samples_out_ptr.put(0, samples_out[0].position(0));
+
+            int ret = swrConvert(outFrames, inFrames);
+
+            // WARNING: This only works if the output format is non-planar (doesn't end with "P")
+            outputStaging.clear();
+            outputStaging.limit(ret * channels);
+
+            return out.write(outputStaging, ret * channels);
+        }
+    }
+
+    /**
+     * @return Frames output per channel
+     */
+    private int swrConvert(int outFrames, int inFrames) {
+        int ret = swresample.swr_convert(swrContext, samples_out_ptr, outFrames, samples_in_ptr, inFrames);
+        if (ret < 0) throw new RuntimeException("swr_convert failed: returned " + ret);
+
+        return ret;
+    }
+
+    private BytePointer getInputPointer(ByteBuffer store) {
+        if (store != inputStore) {
+            inputStorePointer = new BytePointer(store);
+            inputStore = store;
+        }
+
+        return inputStorePointer;
+    }
+
+    private BytePointer getOutputPointer(ByteBuffer store) {
+        if (store != outputStore) {
+            outputStorePointer = new BytePointer(store);
+            outputStore = store;
+        }
+
+        return outputStorePointer;
     }
 
     public static class FFmpegResamplerFactory implements ResamplerFactory {
+        private final Options options;
+
+        public FFmpegResamplerFactory() {
+            this(Options.DEFAULT);
+        }
+
+        public FFmpegResamplerFactory(Options options) {
+            this.options = options;
+        }
+
         @Override
         public Resampler create(AudioFormat in, AudioFormat out, int bufferSize) {
-            return new FFmpegResampler(in, out, bufferSize);
+            return new FFmpegResampler(in, out, bufferSize, options);
+        }
+    }
+
+    /**
+     * swresample options.  Zero leaves an option at swresample's default.
+     */
+    public static final class Options {
+        public static final Options DEFAULT = new Options(swresample.SWR_ENGINE_SWR, 0, 0, 0D);
+
+        private final int engine, filterSize, phaseShift;
+        private final double precision;
+
+        /**
+         * @param engine swresample.SWR_ENGINE_SWR, or SWR_ENGINE_SOXR for libsoxr (if FFmpeg is built with it)
+         * @param filterSize Filter length, for swr
+         * @param phaseShift log2 of the phase count, for swr
+         * @param precision Precision in bits, for soxr
+         */
+        public Options(int engine, int filterSize, int phaseShift, double precision) {
+            this.engine = engine;
+            this.filterSize = filterSize;
+            this.phaseShift = phaseShift;
+            this.precision = precision;
+        }
+
+        public int getEngine() {
+            return engine;
+        }
+
+        public int getFilterSize() {
+            return filterSize;
+        }
+
+        public int getPhaseShift() {
+            return phaseShift;
+        }
+
+        public double getPrecision() {
+            return precision;
         }
     }
 
@@ -0,0 +1,455 @@
+package com.github.manevolent.ts3j.musicbot.audio.resample;
+
+import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Windowed-sinc polyphase resampler, in Java.
+ *
+ * When the ratio of two sample rates reduces to L/M (160/147 for 44.1kHz to 48kHz), every output sample falls on one
+ * of L phases between two input samples.  The filter is precomputed as L sets of taps, a Kaiser-windowed sinc cut off
+ * just below the lower of the two Nyquist frequencies, so each output sample is a single dot product over the input
+ * history.  The tables only depend on the ratio and filter length, and are shared by every resampler that uses them.
+ *
+ * Mono input is filtered once and copied to every output channel; mono output averages the input channels before
+ * filtering.  Other channel layouts, and ratios with more than MAX_PHASES phases, are not supported (see
+ * isSupported()), and are left to FFmpeg by the factory.
+ */
+public class PolyphaseResampler extends Resampler {
+    public static final int MAX_PHASES = 1024;
+    public static final int DEFAULT_TAPS = 32;
+
+    private static final double ROLLOFF = 0.95; // Cutoff, relative to the lower Nyquist frequency
+    private static final double KAISER_BETA = 8D;
+
+    private static final Map<Key, Filter> filters = new ConcurrentHashMap<>();
+
+    private final Filter filter;
+    private final int inputChannels, outputChannels;
+    private final int channels; // Filtered; 1 when either side is mono
+    private final SampleConverter sampleConverter;
+
+    private float[][] history; // Input frames, one array per filtered channel
+    private int historyLength;
+    private int index, phase; // First input frame under the filter for the next output frame, and its phase
+
+    private long inputFrames, outputFrames;
+    private boolean flushed = false;
+
+    private final float[] block; // Interleaved samples on their way in or out
+
+    private float[] conversionBuffer = new float[0];
+    private FloatBuffer conversionFloats = FloatBuffer.wrap(conversionBuffer);
+
+    // Last native-order float buffer resampled from, and a float view of it
+    private ByteBuffer inputBytes;
+    private FloatBuffer inputFloats;
+
+    public PolyphaseResampler(AudioFormat inputFormat, AudioFormat outputFormat, int bufferSize) {
+        this(inputFormat, outputFormat, bufferSize, DEFAULT_TAPS);
+    }
+
+    /**
+     * @param taps Filter length, in input samples when upsampling; longer filters have a steeper rolloff.  Rounded up
+     *             to a multiple of 4, and stretched by the ratio when downsampling.
+     */
+    public PolyphaseResampler(AudioFormat inputFormat, AudioFormat outputFormat, int bufferSize, int taps) {
+        super(inputFormat, outputFormat);
+
+        if (!isSupported(inputFormat, outputFormat))
+            throw new IllegalArgumentException("unsupported conversion: " + inputFormat + " to " + outputFormat);
+
+        if (taps <= 0) throw new IllegalArgumentException("invalid taps: " + taps);
+
+        int inputRate = (int) inputFormat.getSampleRate();
+        int outputRate = (int) outputFormat.getSampleRate();
+        int gcd = gcd(inputRate, outputRate);
+        int upsample = outputRate / gcd, downsample = inputRate / gcd;
+
+        if (upsample == downsample)
+            taps = 4; // Integer distances only; the filter is a unit impulse
+        else if (downsample > upsample)
+            taps = (int) Math.ceil((double) taps * downsample / upsample);
+
+        this.filter = filters.computeIfAbsent(new Key(upsample, downsample, (taps + 3) & ~3), Filter::new);
+
+        this.sampleConverter = SampleConverter.Depth.fromFormat(inputFormat);
+        this.inputChannels = inputFormat.getChannels();
+        this.outputChannels = outputFormat.getChannels();
+        this.channels = Math.min(inputChannels, outputChannels);
+
+        this.block = new float[Math.max(bufferSize, 64 * Math.max(inputChannels, outputChannels))];
+        this.history = new float[channels][filter.taps + (block.length / inputChannels)];
+
+        // Start with the first input frame under the center of the filter
+        this.historyLength = (filter.taps / 2) - 1;
+    }
+
+    /**
+     * Finds if a conversion is supported.
+     * @param in Input format
+     * @param out Output format
+     * @return true if supported, false otherwise
+     */
+    public static boolean isSupported(AudioFormat in, AudioFormat out) {
+        return isSupported(in, out, MAX_PHASES);
+    }
+
+    /**
+     * Finds if a conversion is supported with at most a given number of phases.
+     * @param in Input format
+     * @param out Output format
+     * @param maxPhases Phase limit, up to MAX_PHASES
+     * @return true if supported, false otherwise
+     */
+    public static boolean isSupported(AudioFormat in, AudioFormat out, int maxPhases) {
+        int inputRate = (int) in.getSampleRate(), outputRate = (int) out.getSampleRate();
+        if (inputRate <= 0 || outputRate <= 0 || inputRate != in.getSampleRate() || outputRate != out.getSampleRate())
+            return false;
+
+        if (outputRate / gcd(inputRate, outputRate) > Math.min(maxPhases, MAX_PHASES)) return false;
+
+        int inputChannels = in.getChannels(), outputChannels = out.getChannels();
+        if (inputChannels <= 0 || outputChannels <= 0) return false;
+
+        return inputChannels == outputChannels || inputChannels == 1 || outputChannels == 1;
+    }
+
+    /**
+     * Gets the filter length used, in input samples.
+     * @return Filter length
+     */
+    public int getTaps() {
+        return filter.taps;
+    }
+
+    @Override
+    public int resample(AudioBuffer in, AudioBuffer out) {
+        int stored = produce(out, Long.MAX_VALUE);
+        int chunk = block.length / inputChannels;
+
+        while (in.availableOutput() >= inputChannels) {
+            int frames = Math.min(in.availableOutput() / inputChannels, chunk);
+            in.read(block, 0, frames * inputChannels);
+
+            append(block, 0, frames);
+            stored += produce(out, Long.MAX_VALUE);
+        }
+
+        return stored;
+    }
+
+    @Override
+    public int resample(float[] sampleBuffer, int samples, AudioBuffer out) {
+        int stored = produce(out, Long.MAX_VALUE);
+        int chunk = block.length / inputChannels;
+
+        for (int offs = 0; offs + inputChannels <= samples; offs += chunk * inputChannels) {
+            int frames = Math.min((samples - offs) / inputChannels, chunk);
+
+            append(sampleBuffer, offs, frames);
+            stored += produce(out, Long.MAX_VALUE);
+        }
+
+        return stored;
+    }
+
+    @Override
+    public int resample(byte[] frameData, int samples, AudioBuffer out) {
+        if (conversionBuffer.length < samples) {
+            conversionBuffer = new float[samples];
+            conversionFloats = FloatBuffer.wrap(conversionBuffer);
+        }
+
+        conversionFloats.clear();
+        sampleConverter.convert(frameData, getInputFormat().isBigEndian(), conversionFloats, samples);
+
+        return resample(conversionBuffer, samples, out);
+    }
+
+    @Override
+    public int resample(ByteBuffer floatBufferAsBytes, int samples, AudioBuffer out) {
+        if (floatBufferAsBytes != inputBytes) {
+            ByteBuffer bytes = floatBufferAsBytes.duplicate().order(ByteOrder.nativeOrder());
+            bytes.clear();
+
+            inputFloats = bytes.asFloatBuffer();
+            inputBytes = floatBufferAsBytes;
+        }
+
+        int stored = produce(out, Long.MAX_VALUE);
+        int chunk = block.length / inputChannels;
+
+        inputFloats.clear();
+
+        for (int offs = 0; offs + inputChannels <= samples; offs += chunk * inputChannels) {
+            int frames = Math.min((samples - offs) / inputChannels, chunk);
+            inputFloats.get(block, 0, frames * inputChannels);
+
+            append(block, 0, frames);
+            stored += produce(out, Long.MAX_VALUE);
+        }
+
+        return stored;
+    }
+
+    /**
+     * Resamples the end of the input, as far as the samples it accounts for.  Output that doesn't fit is kept for the
+     * next call.
+     */
+    @Override
+    public int flush(AudioBuffer out) {
+        if (!flushed) {
+            // The filter reaches half its length past the last frame
+            int padding = filter.taps / 2;
+            ensureCapacity(padding);
+
+            for (float[] channel : history)
+                Arrays.fill(channel, historyLength, historyLength + padding, 0F);
+
+            historyLength += padding;
+            flushed = true;
+        }
+
+        long frames = ((inputFrames * filter.upsample) + filter.downsample - 1) / filter.downsample;
+        return produce(out, frames);
+    }
+
+    @Override
+    public void close() {
+        // Nothing native to release
+    }
+
+    /**
+     * Appends interleaved input frames to the history, downmixing them if the output is mono.
+     */
+    private void append(float[] samples, int offs, int frames) {
+        ensureCapacity(frames);
+
+        if (channels == inputChannels) {
+            for (int ch = 0; ch < channels; ch ++) {
+                float[] channel = history[ch];
+                for (int frame = 0, sample = offs + ch; frame < frames; frame ++, sample += inputChannels)
+                    channel[historyLength + frame] = samples[sample];
+            }
+        } else {
+            float[] channel = history[0];
+            float scale = 1F / inputChannels;
+
+            for (int frame = 0, sample = offs; frame < frames; frame ++) {
+                float sum = 0F;
+                for (int ch = 0; ch < inputChannels; ch ++) sum += samples[sample ++];
+                channel[historyLength + frame] = sum * scale;
+            }
+        }
+
+        historyLength += frames;
+        inputFrames += frames;
+        flushed = false;
+    }
+
+    /**
+     * Drops the frames behind the filter, and grows the history if it can't take more frames.
+     */
+    private void ensureCapacity(int frames) {
+        if (index > 0) {
+            for (float[] channel : history)
+                System.arraycopy(channel, index, channel, 0, historyLength - index);
+
+            historyLength -= index;
+            index = 0;
+        }
+
+        if (historyLength + frames > history[0].length) {
+            int capacity = Math.max(historyLength + frames, history[0].length * 2);
+            for (int ch = 0; ch < channels; ch ++)
+                history[ch] = Arrays.copyOf(history[ch], capacity);
+        }
+    }
+
+    /**
+     * Filters as many output frames as the history covers and the output buffer holds.
+     * @param limit Output frame count not to go past
+     * @return Samples written to the output buffer
+     */
+    private int produce(AudioBuffer out, long limit) {
+        int taps = filter.taps, upsample = filter.upsample, downsample = filter.downsample;
+        float[] coefficients = filter.coefficients;
+        int stored = 0;
+
+        while (true) {
+            long frames = Math.min(out.availableInput(), block.length) / outputChannels;
+            frames = Math.min(frames, limit - outputFrames);
+
+            int pos = 0, produced = 0;
+
+            for (; produced < frames && index + taps <= historyLength; produced ++) {
+                int offs = phase * taps;
+
+                if (channels == outputChannels) {
+                    for (int ch = 0; ch < channels; ch ++)
+                        block[pos ++] = dot(coefficients, offs, history[ch], index, taps);
+                } else {
+                    float sample = dot(coefficients, offs, history[0], index, taps);
+                    for (int ch = 0; ch < outputChannels; ch ++) block[pos ++] = sample;
+                }
+
+                phase += downsample;
+                index += phase / upsample;
+                phase %= upsample;
+            }
+
+            if (produced <= 0) break;
+
+            outputFrames += produced;
+            stored += out.write(block, 0, pos);
+        }
+
+        return stored;
+    }
+
+    private static float dot(float[] coefficients, int coefficientOffs, float[] samples, int sampleOffs, int taps) {
+        // Independent sums, so that the multiply-adds of one don't wait on another's
+        float a = 0F, b = 0F, c = 0F, d = 0F;
+
+        for (int i = 0; i < taps; i += 4) {
+            a += coefficients[coefficientOffs + i] * samples[sampleOffs + i];
+            b += coefficients[coefficientOffs + i + 1] * samples[sampleOffs + i + 1];
+            c += coefficients[coefficientOffs + i + 2] * samples[sampleOffs + i + 2];
+            d += coefficients[coefficientOffs + i + 3] * samples[sampleOffs + i + 3];
+        }
+
+        return (a + b) + (c + d);
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+
+        return a;
+    }
+
+    public static class PolyphaseResamplerFactory implements ResamplerFactory {
+        private final int taps, maxPhases;
+        private final ResamplerFactory fallback;
+
+        /**
+         * @param fallback Factory for unsupported conversions; null to throw IllegalArgumentException on them instead
+         */
+        public PolyphaseResamplerFactory(int taps, ResamplerFactory fallback) {
+            this(taps, MAX_PHASES, fallback);
+        }
+
+        /**
+         * @param maxPhases Phase limit; conversions that need more tables are left to the fallback
+         * @param fallback Factory for unsupported conversions; null to throw IllegalArgumentException on them instead
+         */
+        public PolyphaseResamplerFactory(int taps, int maxPhases, ResamplerFactory fallback) {
+            this.taps = taps;
+            this.maxPhases = maxPhases;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Resampler create(AudioFormat in, AudioFormat out, int bufferSize) {
+            if (fallback == null || isSupported(in, out, maxPhases))
+                return new PolyphaseResampler(in, out, bufferSize, taps);
+
+            return fallback.create(in, out, bufferSize);
+        }
+    }
+
+    /**
+     * Coefficient table for a ratio of L/M and a filter length.
+     */
+    private static final class Filter {
+        private final int upsample, downsample, taps;
+        private final float[] coefficients; // taps per phase, phase-major
+
+        private Filter(Key key) {
+            this.upsample = key.upsample;
+            this.downsample = key.downsample;
+            this.taps = key.taps;
+            this.coefficients = new float[upsample * taps];
+
+            // Unfiltered when only the channels change
+            double cutoff = upsample == downsample ? 1D : ROLLOFF * Math.min(1D, (double) upsample / downsample);
+            int half = taps / 2;
+            double[] row = new double[taps];
+
+            for (int phase = 0; phase < upsample; phase ++) {
+                double sum = 0D;
+
+                for (int tap = 0; tap < taps; tap ++) {
+                    // Distance from the output sample to this tap's input sample, in input samples
+                    double distance = (tap - (half - 1)) - ((double) phase / upsample);
+                    double x = distance / half;
+
+                    row[tap] = cutoff * sinc(cutoff * distance) * kaiser(x);
+                    sum += row[tap];
+                }
+
+                // Unity gain at DC on every phase
+                for (int tap = 0; tap < taps; tap ++)
+                    coefficients[(phase * taps) + tap] = (float) (row[tap] / sum);
+            }
+        }
+
+        private static double sinc(double x) {
+            if (x == 0D) return 1D;
+            return Math.sin(Math.PI * x) / (Math.PI * x);
+        }
+
+        private static double kaiser(double x) {
+            if (x <= -1D || x >= 1D) return 0D;
+            return bessel(KAISER_BETA * Math.sqrt(1D - (x * x))) / bessel(KAISER_BETA);
+        }
+
+        /**
+         * Zeroth-order modified Bessel function of the first kind.
+         */
+        private static double bessel(double x) {
+            double sum = 1D, term = 1D;
+
+            for (int k = 1; term > sum * 1E-12; k ++) {
+                term *= (x / (2D * k)) * (x / (2D * k));
+                sum += term;
+            }
+
+            return sum;
+        }
+    }
+
+    private static final class Key {
+        private final int upsample, downsample, taps;
+
+        private Key(int upsample, int downsample, int taps) {
+            this.upsample = upsample;
+            this.downsample = downsample;
+            this.taps = taps;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return upsample == other.upsample && downsample == other.downsample && taps == other.taps;
+        }
+
+        @Override
+        public int hashCode() {
+            return (((upsample * 31) + downsample) * 31) + taps;
+        }
+    }
+}
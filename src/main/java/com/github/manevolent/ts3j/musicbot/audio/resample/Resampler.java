@@ -5,10 +5,16 @@ import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
 import javax.sound.sampled.AudioFormat;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 
 public abstract class Resampler implements AutoCloseable {
     private final AudioFormat inputFormat, outputFormat;
 
+    // Reused between calls, grown as needed
+    private float[] transferBuffer = new float[0];
+    private ByteBuffer transferBytes = ByteBuffer.allocate(0);
+    private FloatBuffer transferFloats = transferBytes.asFloatBuffer();
+
     protected Resampler(AudioFormat inputFormat, AudioFormat outputFormat) {
         this.inputFormat = inputFormat;
         this.outputFormat = outputFormat;
@@ -21,10 +27,19 @@ public abstract class Resampler implements AutoCloseable {
         return outputFormat;
     }
 
+    /**
+     * Resamples every whole frame waiting in one buffer into another.
+     * @param in Input buffer; consumed
+     * @param out Output buffer
+     * @return Samples written to the output buffer
+     */
     public int resample(AudioBuffer in, AudioBuffer out) {
-        float[] samples = new float[in.availableOutput()];
-        int read = in.read(samples, 0, samples.length);
-        return resample(samples, read, out);
+        int channels = getInputFormat().getChannels();
+        int samples = in.availableOutput() - (in.availableOutput() % channels);
+
+        float[] transferBuffer = getTransferBuffer(samples);
+        int read = in.read(transferBuffer, 0, samples);
+        return resample(transferBuffer, read, out);
     }
 
     public int resample(float[] samples, AudioBuffer out) {
@@ -36,22 +51,52 @@ public abstract class Resampler implements AutoCloseable {
     }
 
     public int resample(double[] sampleBuffer, int samples, AudioBuffer out) {
-        float[] floatSampleBuffer = new float[samples];
+        float[] floatSampleBuffer = getTransferBuffer(samples);
         for (int i = 0; i < samples; i ++) floatSampleBuffer[i] = (float) sampleBuffer[i];
 
         return resample(floatSampleBuffer, samples, out);
     }
 
     public int resample(float[] sampleBuffer, int samples, AudioBuffer out) {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(samples * 4);
-        byteBuffer.order(ByteOrder.nativeOrder());
+        if (transferBytes.capacity() < samples * 4) {
+            transferBytes = ByteBuffer.allocate(samples * 4).order(ByteOrder.nativeOrder());
+            transferFloats = transferBytes.asFloatBuffer();
+        }
 
-        byteBuffer.asFloatBuffer().put(sampleBuffer, 0, samples);
+        transferFloats.clear();
+        transferFloats.put(sampleBuffer, 0, samples);
 
-        return resample(byteBuffer, samples, out);
+        return resample(transferBytes, samples, out);
+    }
+
+    private float[] getTransferBuffer(int samples) {
+        if (transferBuffer.length < samples) transferBuffer = new float[samples];
+        return transferBuffer;
     }
 
     public abstract int resample(byte[] frameData, int samples, AudioBuffer out);
+
+    /**
+     * Resamples native-order float samples.
+     * @param floatBufferAsBytes Samples, from position 0; heap or direct
+     * @param samples Sample count
+     * @param out Output buffer
+     * @return Samples written to the output buffer
+     */
     public abstract int resample(ByteBuffer floatBufferAsBytes, int samples, AudioBuffer out);
     public abstract int flush(AudioBuffer out);
+
+    /**
+     * Finds if output is best written into a direct AudioBuffer, which native resamplers write in place.  Resamplers
+     * writing from Java arrays are faster with a heap buffer.
+     * @return true if a direct output buffer is preferred, false otherwise
+     */
+    public boolean prefersDirectOutput() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
 }
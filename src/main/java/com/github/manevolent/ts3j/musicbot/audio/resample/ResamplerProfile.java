@@ -0,0 +1,220 @@
+package com.github.manevolent.ts3j.musicbot.audio.resample;
+
+import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
+import com.google.gson.JsonObject;
+import org.bytedeco.javacpp.swresample;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named resampler quality/CPU trade-off, from the "resampler.profiles" configuration:
+ *
+ * "java" - the Java polyphase resampler, with "taps" taps per phase, for ratios needing at most "phases" phases;
+ *          anything else falls back to swr with the same filter
+ * "swr"  - FFmpeg's swresample, with a "taps" long filter and "phases" phases (rounded down to a power of two)
+ * "soxr" - libsoxr through swresample, at "precision" bits; needs an FFmpeg built with it
+ *
+ * Every resampler the profile creates is timed, so that its measured cost per sample can be read over JMX.
+ */
+public class ResamplerProfile implements ResamplerProfileMXBean {
+    private static final int DEFAULT_PHASES = 1024;
+    private static final double DEFAULT_PRECISION = 20D; // soxr's "high quality"
+
+    private final String name;
+    private final Engine engine;
+    private final int taps, phases;
+    private final double precision;
+
+    private final ResamplerFactory factory;
+
+    private final LongAdder resamplersCreated = new LongAdder();
+    private final LongAdder samplesResampled = new LongAdder();
+    private final LongAdder resampleTime = new LongAdder();
+
+    public ResamplerProfile(String name, Engine engine, int taps, int phases, double precision) {
+        if (taps <= 0) throw new IllegalArgumentException("invalid taps: " + taps);
+        if (phases <= 0) throw new IllegalArgumentException("invalid phases: " + phases);
+        if (precision <= 0D) throw new IllegalArgumentException("invalid precision: " + precision);
+
+        this.name = name;
+        this.engine = engine;
+        this.taps = taps;
+        this.phases = phases;
+        this.precision = precision;
+
+        int phaseShift = 31 - Integer.numberOfLeadingZeros(phases);
+        FFmpegResampler.FFmpegResamplerFactory swr = new FFmpegResampler.FFmpegResamplerFactory(
+                new FFmpegResampler.Options(swresample.SWR_ENGINE_SWR, taps, phaseShift, 0D)
+        );
+
+        switch (engine) {
+            case JAVA:
+                this.factory = new PolyphaseResampler.PolyphaseResamplerFactory(taps, phases, swr);
+                break;
+            case SWR:
+                this.factory = swr;
+                break;
+            case SOXR:
+                this.factory = new FFmpegResampler.FFmpegResamplerFactory(
+                        new FFmpegResampler.Options(swresample.SWR_ENGINE_SOXR, 0, 0, precision)
+                );
+                break;
+            default:
+                throw new UnsupportedOperationException(engine.name());
+        }
+    }
+
+    public static ResamplerProfile fromJson(String name, JsonObject profile) {
+        return new ResamplerProfile(
+                name,
+                Engine.valueOf(profile.get("engine").getAsString().toUpperCase()),
+                profile.has("taps") ? profile.get("taps").getAsInt() : PolyphaseResampler.DEFAULT_TAPS,
+                profile.has("phases") ? profile.get("phases").getAsInt() : DEFAULT_PHASES,
+                profile.has("precision") ? profile.get("precision").getAsDouble() : DEFAULT_PRECISION
+        );
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets a factory for resamplers with this profile, which are timed into its cost.
+     * @return Resampler factory
+     */
+    public ResamplerFactory getFactory() {
+        return (in, out, bufferSize) -> {
+            Resampler resampler = new MeasuredResampler(factory.create(in, out, bufferSize));
+            resamplersCreated.increment();
+            return resampler;
+        };
+    }
+
+    @Override
+    public String getEngine() {
+        return engine.name().toLowerCase();
+    }
+
+    @Override
+    public int getTaps() {
+        return taps;
+    }
+
+    @Override
+    public int getPhases() {
+        return phases;
+    }
+
+    @Override
+    public double getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public long getResamplersCreated() {
+        return resamplersCreated.sum();
+    }
+
+    @Override
+    public long getSamplesResampled() {
+        return samplesResampled.sum();
+    }
+
+    @Override
+    public long getResampleTime() {
+        return resampleTime.sum();
+    }
+
+    @Override
+    public double getCost() {
+        long samples = samplesResampled.sum();
+        return samples > 0L ? (double) resampleTime.sum() / samples : 0D;
+    }
+
+    @Override
+    public double getStreamLoad() {
+        return getCost() * 48000D * 2D / 1_000_000_000D;
+    }
+
+    @Override
+    public void reset() {
+        samplesResampled.reset();
+        resampleTime.reset();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + getEngine() + ")";
+    }
+
+    public enum Engine {
+        JAVA,
+        SWR,
+        SOXR
+    }
+
+    /**
+     * Times a resampler's calls into the profile's cost.
+     */
+    private class MeasuredResampler extends Resampler {
+        private final Resampler resampler;
+
+        private MeasuredResampler(Resampler resampler) {
+            super(resampler.getInputFormat(), resampler.getOutputFormat());
+
+            this.resampler = resampler;
+        }
+
+        private int record(long start, int samples) {
+            resampleTime.add(System.nanoTime() - start);
+            samplesResampled.add(samples);
+            return samples;
+        }
+
+        @Override
+        public int resample(AudioBuffer in, AudioBuffer out) {
+            long start = System.nanoTime();
+            return record(start, resampler.resample(in, out));
+        }
+
+        @Override
+        public int resample(float[] sampleBuffer, int samples, AudioBuffer out) {
+            long start = System.nanoTime();
+            return record(start, resampler.resample(sampleBuffer, samples, out));
+        }
+
+        @Override
+        public int resample(byte[] frameData, int samples, AudioBuffer out) {
+            long start = System.nanoTime();
+            return record(start, resampler.resample(frameData, samples, out));
+        }
+
+        @Override
+        public int resample(ByteBuffer floatBufferAsBytes, int samples, AudioBuffer out) {
+            long start = System.nanoTime();
+            return record(start, resampler.resample(floatBufferAsBytes, samples, out));
+        }
+
+        @Override
+        public int flush(AudioBuffer out) {
+            long start = System.nanoTime();
+            return record(start, resampler.flush(out));
+        }
+
+        @Override
+        public boolean prefersDirectOutput() {
+            return resampler.prefersDirectOutput();
+        }
+
+        @Override
+        public void close() throws Exception {
+            resampler.close();
+        }
+
+        @Override
+        public String toString() {
+            return resampler + ", " + name + " profile";
+        }
+    }
+}
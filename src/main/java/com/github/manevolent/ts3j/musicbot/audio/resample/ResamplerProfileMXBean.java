@@ -0,0 +1,47 @@
+package com.github.manevolent.ts3j.musicbot.audio.resample;
+
+/**
+ * Management interface of a resampler profile, with the cost measured across every resampler it created.
+ */
+public interface ResamplerProfileMXBean {
+    String getEngine();
+    int getTaps();
+    int getPhases();
+    double getPrecision();
+
+    /**
+     * Gets the count of resamplers created with the profile.
+     * @return Resamplers created
+     */
+    long getResamplersCreated();
+
+    /**
+     * Gets the count of samples the profile's resamplers produced.
+     * @return Samples resampled
+     */
+    long getSamplesResampled();
+
+    /**
+     * Gets the time the profile's resamplers spent resampling, in nanoseconds.
+     * @return Resample time
+     */
+    long getResampleTime();
+
+    /**
+     * Gets the measured cost of the profile, in nanoseconds per output sample.
+     * @return Cost, or 0 if nothing was resampled yet
+     */
+    double getCost();
+
+    /**
+     * Gets the share of one CPU core a stream resampled to 48kHz stereo costs, at the measured cost.  The inverse is
+     * about how many such streams one core can resample.
+     * @return Share of a core, per stream
+     */
+    double getStreamLoad();
+
+    /**
+     * Clears the sample count and resample time.
+     */
+    void reset();
+}
@@ -0,0 +1,65 @@
+package com.github.manevolent.ts3j.musicbot.audio.resample;
+
+import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
+import com.google.gson.JsonObject;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resampler profiles, shared by name between the servers that use them, so that each profile's cost is measured
+ * across all of its streams.  Each profile is registered as a
+ * com.github.manevolent.ts3j.musicbot:type=ResamplerProfile MXBean.
+ */
+public class ResamplerProfiles {
+    private static final String DOMAIN = "com.github.manevolent.ts3j.musicbot";
+
+    private final Map<String, Entry> profiles = new HashMap<>();
+
+    /**
+     * Gets the profile a server is configured to use ("resampler.profile"), creating it on first use.
+     * @return Resampler profile
+     */
+    public synchronized ResamplerProfile get(JsonObject defaultConfiguration, JsonObject serverConfiguration) {
+        String name = ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "resampler.profile")
+                .getAsString();
+        JsonObject definition = ConfigurationHelper.get(
+                defaultConfiguration, serverConfiguration, "resampler.profiles." + name
+        ).getAsJsonObject();
+
+        Entry entry = profiles.get(name);
+
+        if (entry == null) {
+            entry = new Entry(definition, ResamplerProfile.fromJson(name, definition));
+            profiles.put(name, entry);
+
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        entry.profile,
+                        new ObjectName(DOMAIN + ":type=ResamplerProfile,name=" + ObjectName.quote(name))
+                );
+            } catch (JMException e) {
+                Logger.getGlobal().log(Level.WARNING, "Failed to register resampler profile " + name, e);
+            }
+        } else if (!entry.definition.equals(definition)) {
+            throw new IllegalArgumentException("conflicting definitions of resampler profile " + name);
+        }
+
+        return entry.profile;
+    }
+
+    private static final class Entry {
+        private final JsonObject definition;
+        private final ResamplerProfile profile;
+
+        private Entry(JsonObject definition, ResamplerProfile profile) {
+            this.definition = definition;
+            this.profile = profile;
+        }
+    }
+}
@@ -1,9 +1,122 @@
 package com.github.manevolent.ts3j.musicbot.audio.resample;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
 public final class SampleConvert {
     private static final int _24MIN = (int) Math.pow(-2, 23);
     private static final int _24MAX = (int) Math.pow(2, 23) - 1;
 
+    // Full scale of each width, and its inverse
+    private static final float SCALE_8 = 128F, SCALE_16 = 32768F, SCALE_24 = 8388608F, SCALE_32 = 2147483648F;
+    private static final float INVERSE_8 = 1F / SCALE_8, INVERSE_16 = 1F / SCALE_16,
+            INVERSE_24 = 1F / SCALE_24, INVERSE_32 = 1F / SCALE_32;
+
+    /**
+     * Converts 8-bit PCM to floats.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void pcm8ToFloat(byte[] pcm, int pcmOffs, int bias, float[] out, int offs, int samples) {
+        for (int i = 0; i < samples; i ++)
+            out[offs + i] = (byte) (pcm[pcmOffs + i] ^ bias) * INVERSE_8;
+    }
+
+    /**
+     * Converts 16-bit PCM to floats, through a short view of the PCM.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void pcm16ToFloat(byte[] pcm, int pcmOffs, ByteOrder order, int bias,
+                                    float[] out, int offs, int samples) {
+        ShortBuffer view = ByteBuffer.wrap(pcm, pcmOffs, samples * 2).slice().order(order).asShortBuffer();
+
+        for (int i = 0; i < samples; i ++)
+            out[offs + i] = (short) (view.get(i) ^ bias) * INVERSE_16;
+    }
+
+    /**
+     * Converts 24-bit PCM to floats.  There is no 24-bit view, so the bytes are assembled, and sign-extended by shifts.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void pcm24ToFloat(byte[] pcm, int pcmOffs, ByteOrder order, int bias,
+                                    float[] out, int offs, int samples) {
+        // Byte offsets of the low, middle and high byte of each sample
+        int low = order == ByteOrder.BIG_ENDIAN ? 2 : 0, high = 2 - low;
+
+        for (int i = 0, pos = pcmOffs; i < samples; i ++, pos += 3) {
+            int sample = (pcm[pos + low] & 0xFF) | ((pcm[pos + 1] & 0xFF) << 8) | ((pcm[pos + high] & 0xFF) << 16);
+            out[offs + i] = (((sample ^ bias) << 8) >> 8) * INVERSE_24;
+        }
+    }
+
+    /**
+     * Converts 32-bit PCM to floats, through an int view of the PCM.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void pcm32ToFloat(byte[] pcm, int pcmOffs, ByteOrder order, int bias,
+                                    float[] out, int offs, int samples) {
+        IntBuffer view = ByteBuffer.wrap(pcm, pcmOffs, samples * 4).slice().order(order).asIntBuffer();
+
+        for (int i = 0; i < samples; i ++)
+            out[offs + i] = (view.get(i) ^ bias) * INVERSE_32;
+    }
+
+    /**
+     * Converts floats to 8-bit PCM, rounded and clipped.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void floatToPcm8(float[] in, int offs, byte[] pcm, int pcmOffs, int bias, int samples) {
+        for (int i = 0; i < samples; i ++)
+            pcm[pcmOffs + i] = (byte) (clip(Math.round(in[offs + i] * SCALE_8), -128, 127) ^ bias);
+    }
+
+    /**
+     * Converts floats to 16-bit PCM, rounded and clipped, through a short view of the PCM.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void floatToPcm16(float[] in, int offs, byte[] pcm, int pcmOffs, ByteOrder order, int bias,
+                                    int samples) {
+        ShortBuffer view = ByteBuffer.wrap(pcm, pcmOffs, samples * 2).slice().order(order).asShortBuffer();
+
+        for (int i = 0; i < samples; i ++)
+            view.put(i, (short) (clip(Math.round(in[offs + i] * SCALE_16), -32768, 32767) ^ bias));
+    }
+
+    /**
+     * Converts floats to 24-bit PCM, rounded and clipped.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void floatToPcm24(float[] in, int offs, byte[] pcm, int pcmOffs, ByteOrder order, int bias,
+                                    int samples) {
+        int low = order == ByteOrder.BIG_ENDIAN ? 2 : 0, high = 2 - low;
+
+        for (int i = 0, pos = pcmOffs; i < samples; i ++, pos += 3) {
+            int sample = clip(Math.round(in[offs + i] * SCALE_24), _24MIN, _24MAX) ^ bias;
+
+            pcm[pos + low] = (byte) sample;
+            pcm[pos + 1] = (byte) (sample >> 8);
+            pcm[pos + high] = (byte) (sample >> 16);
+        }
+    }
+
+    /**
+     * Converts floats to 32-bit PCM, rounded and clipped (by the saturating float to int conversion), through an int
+     * view of the PCM.
+     * @param bias 0 for signed samples, or their sign bit for unsigned samples
+     */
+    public static void floatToPcm32(float[] in, int offs, byte[] pcm, int pcmOffs, ByteOrder order, int bias,
+                                    int samples) {
+        IntBuffer view = ByteBuffer.wrap(pcm, pcmOffs, samples * 4).slice().order(order).asIntBuffer();
+
+        for (int i = 0; i < samples; i ++)
+            view.put(i, Math.round(in[offs + i] * SCALE_32) ^ bias);
+    }
+
+    private static int clip(int sample, int min, int max) {
+        return Math.max(min, Math.min(max, sample));
+    }
+
     public static final float byteToFloat(byte b) {
         return ((float)(b - Byte.MIN_VALUE) / (float)(Byte.MAX_VALUE - Byte.MIN_VALUE))*2f - 1f;
     }
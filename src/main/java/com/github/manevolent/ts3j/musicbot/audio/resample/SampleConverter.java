@@ -1,65 +1,134 @@
 package com.github.manevolent.ts3j.musicbot.audio.resample;
 
 import javax.sound.sampled.AudioFormat;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
+/**
+ * Converts between PCM and floats in [-1, 1).
+ */
 public interface SampleConverter {
     void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples);
 
+    /**
+     * Converts PCM samples to floats.
+     * @param pcm PCM samples
+     * @param pcmOffs Offset in the PCM samples, in bytes
+     * @param bigEndian true if the PCM samples are big-endian
+     * @param target Float samples
+     * @param offs Offset in the float samples
+     * @param samples Sample count
+     */
+    void convert(byte[] pcm, int pcmOffs, boolean bigEndian, float[] target, int offs, int samples);
+
+    /**
+     * Converts floats to PCM samples, rounding them and clipping them to the PCM range.  For callers that hold floats
+     * but feed a PCM consumer, such as OpusEncoder.encode(byte[]); the bot itself encodes floats directly.
+     * @param source Float samples
+     * @param offs Offset in the float samples
+     * @param pcm PCM samples
+     * @param pcmOffs Offset in the PCM samples, in bytes
+     * @param bigEndian true to write big-endian PCM samples
+     * @param samples Sample count
+     */
+    void toPcm(float[] source, int offs, byte[] pcm, int pcmOffs, boolean bigEndian, int samples);
+
+    /**
+     * PCM sample formats.  Samples are converted in bulk, through typed views of the PCM bytes where there is one for
+     * the width, and with no branches per sample: unsigned samples have their sign bit flipped, and the scale is a
+     * multiplication by a power of two, so that full scale maps to exactly 1.
+     */
     enum Depth implements SampleConverter {
-        SIGNED_32BIT(32, true) {
-            @Override
-            public void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples) {
-                if (bigEndian)
-                    for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                        target.put(SampleConvert.int32ToFloat((short) SampleConvert.bytesToInt32_optimized_BE(pcm, sampleIndex * 4)));
-                else
-                    for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                        target.put(SampleConvert.int32ToFloat((short) SampleConvert.bytesToInt32_optimized_LE(pcm, sampleIndex * 4)));
-            }
-        },
-        SIGNED_24BIT(24, true) {
-            @Override
-            public void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples) {
-                if (bigEndian)
-                    for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                        target.put(SampleConvert.int24ToFloat((short) SampleConvert.bytesToInt24_optimized_BE(pcm, sampleIndex * 3)));
-                else
-                    for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                        target.put(SampleConvert.int24ToFloat((short) SampleConvert.bytesToInt24_optimized_LE(pcm, sampleIndex * 3)));
-            }
-        },
-        SIGNED_16BIT(16, true) {
-            @Override
-            public void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples) {
-                if (bigEndian)
-                    for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                        target.put(SampleConvert.shortToFloat((short) SampleConvert.bytesToInt16_optimized_BE(pcm, sampleIndex * 2)));
-                else
-                    for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                        target.put(SampleConvert.shortToFloat((short) SampleConvert.bytesToInt16_optimized_LE(pcm, sampleIndex * 2)));
-            }
-        },
-        SIGNED_8BIT(8, true) {
+        SIGNED_32BIT(32, true),
+        SIGNED_24BIT(24, true),
+        SIGNED_16BIT(16, true),
+        SIGNED_8BIT(8, true),
+        UNSIGNED_32BIT(32, false),
+        UNSIGNED_24BIT(24, false),
+        UNSIGNED_16BIT(16, false),
+        UNSIGNED_8BIT(8, false),
+        DISABLED_0BIT(0, true) {
             @Override
-            public void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples) {
-                for (int sampleIndex = 0; sampleIndex < samples; sampleIndex ++)
-                    target.put(SampleConvert.byteToFloat(pcm[sampleIndex]));
+            public void convert(byte[] pcm, int pcmOffs, boolean bigEndian, float[] target, int offs, int samples) {
+                throw new UnsupportedOperationException();
             }
-        },
-        DISABLED_0BIT(0, true) {
+
             @Override
-            public void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples) {
+            public void toPcm(float[] source, int offs, byte[] pcm, int pcmOffs, boolean bigEndian, int samples) {
                 throw new UnsupportedOperationException();
             }
         };
 
+        private static final int CHUNK = 1024; // Samples staged at a time for buffers without an array
+
         private final int bitDepth;
         private final boolean signed;
+        private final int bias; // Flips the sign bit of unsigned samples
 
         Depth(int bitDepth, boolean signed) {
             this.bitDepth = bitDepth;
             this.signed = signed;
+            this.bias = signed || bitDepth == 0 ? 0 : 1 << (bitDepth - 1);
+        }
+
+        @Override
+        public void convert(byte[] pcm, boolean bigEndian, FloatBuffer target, int samples) {
+            if (target.hasArray()) {
+                convert(pcm, 0, bigEndian, target.array(), target.arrayOffset() + target.position(), samples);
+                target.position(target.position() + samples);
+            } else {
+                float[] chunk = new float[Math.min(CHUNK, samples)];
+
+                for (int pos = 0; pos < samples; pos += chunk.length) {
+                    int len = Math.min(chunk.length, samples - pos);
+                    convert(pcm, pos * (bitDepth / 8), bigEndian, chunk, 0, len);
+                    target.put(chunk, 0, len);
+                }
+            }
+        }
+
+        @Override
+        public void convert(byte[] pcm, int pcmOffs, boolean bigEndian, float[] target, int offs, int samples) {
+            ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+
+            switch (bitDepth) {
+                case 32:
+                    SampleConvert.pcm32ToFloat(pcm, pcmOffs, order, bias, target, offs, samples);
+                    break;
+                case 24:
+                    SampleConvert.pcm24ToFloat(pcm, pcmOffs, order, bias, target, offs, samples);
+                    break;
+                case 16:
+                    SampleConvert.pcm16ToFloat(pcm, pcmOffs, order, bias, target, offs, samples);
+                    break;
+                case 8:
+                    SampleConvert.pcm8ToFloat(pcm, pcmOffs, bias, target, offs, samples);
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+            }
+        }
+
+        @Override
+        public void toPcm(float[] source, int offs, byte[] pcm, int pcmOffs, boolean bigEndian, int samples) {
+            ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+
+            switch (bitDepth) {
+                case 32:
+                    SampleConvert.floatToPcm32(source, offs, pcm, pcmOffs, order, bias, samples);
+                    break;
+                case 24:
+                    SampleConvert.floatToPcm24(source, offs, pcm, pcmOffs, order, bias, samples);
+                    break;
+                case 16:
+                    SampleConvert.floatToPcm16(source, offs, pcm, pcmOffs, order, bias, samples);
+                    break;
+                case 8:
+                    SampleConvert.floatToPcm8(source, offs, pcm, pcmOffs, bias, samples);
+                    break;
+                default:
+                    throw new UnsupportedOperationException();
+            }
         }
 
         public static Depth fromFormat(AudioFormat audioFormat) {
@@ -0,0 +1,300 @@
+package com.github.manevolent.ts3j.musicbot.broadcast;
+
+import com.github.manevolent.ts3j.enums.CodecType;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.BufferedMixer;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerClock;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerScheduler;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.FilterDither;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.SoftClipFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusEncoderPool;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusGovernor;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusParameters;
+import com.github.manevolent.ts3j.musicbot.cache.PacketCache;
+import com.github.manevolent.ts3j.musicbot.cache.PacketCacheWriter;
+import com.github.manevolent.ts3j.musicbot.client.TeamspeakFastMixerSink;
+import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
+import com.google.gson.JsonObject;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One shared stream: a mixer playing a single source at unity gain into a single encoder, whose packets are copied to
+ * every subscriber.
+ *
+ * Subscribers pull packets at the network rate.  Whichever subscriber finds its own queue empty pumps the next packet
+ * out of the encoder into every subscriber's queue, so the stream advances at the pace of the fastest subscriber, and
+ * a subscriber that falls behind loses packets rather than holding the others back.
+ *
+ * With a PacketCache, the encoded packets are also recorded, and the recording is committed if the source plays to
+ * its end at full quality.
+ */
+public class Broadcast {
+    private final BroadcastManager manager;
+    private final URI source;
+    private final OpusParameters opusParameters;
+    private final JsonObject defaultConfiguration;
+
+    private final BufferedMixer mixer;
+    private final TeamspeakFastMixerSink sink;
+    private final MixerScheduler scheduler;
+    private volatile MixerScheduler.ScheduledMixer scheduledMixer;
+    private volatile MixerChannel channel;
+
+    private final PacketCache packetCache;
+    private PacketCacheWriter recording; // Guarded by pumpLock
+    private long recordingStepsDown, recordingOverflows;
+
+    private final int queueCapacity; // Packets queued per subscriber
+
+    private final Object subscriptionLock = new Object();
+    private volatile BroadcastSubscription[] subscriptions = new BroadcastSubscription[0];
+    private volatile boolean closed = false;
+
+    private final Object pumpLock = new Object();
+
+    Broadcast(BroadcastManager manager,
+              URI source,
+              OpusParameters opusParameters,
+              JsonObject defaultConfiguration,
+              MixerScheduler scheduler,
+              OpusEncoderPool encoderPool,
+              PacketCache packetCache) {
+        this.manager = manager;
+        this.source = source;
+        this.opusParameters = opusParameters;
+        this.defaultConfiguration = defaultConfiguration;
+        this.scheduler = scheduler;
+        this.packetCache = packetCache;
+
+        // Same format and chain as a bot's own mixer, minus the gain stage
+        float sampleRate = 48000F;
+        int channels = 2;
+        float bufferSizePerChannel =
+                sampleRate * ConfigurationHelper.get(defaultConfiguration, "opus.buffer").getAsFloat();
+        int bufferSize = (int) (bufferSizePerChannel * channels);
+        this.mixer = new BufferedMixer(bufferSize, sampleRate, channels);
+
+        MixerFilter[] multichannelClipFilter = new MixerFilter[channels];
+        for (int ch = 0; ch < channels; ch++) multichannelClipFilter[ch] = new SoftClipFilter();
+        this.mixer.addFilter(multichannelClipFilter);
+
+        MixerFilter[] multichannelDitherFilter = new MixerFilter[channels];
+        for (int ch = 0; ch < channels; ch++) multichannelDitherFilter[ch] = new FilterDither(24);
+        this.mixer.addFilter(multichannelDitherFilter);
+
+        this.sink = new TeamspeakFastMixerSink(
+                new AudioFormat(sampleRate, 32, channels, true, false),
+                bufferSize * 4,
+                opusParameters,
+                encoderPool,
+                OpusGovernor.fromJson(defaultConfiguration, new JsonObject(), opusParameters, encoderPool)
+        );
+
+        this.sink.setLatencyWatermarks(
+                ConfigurationHelper.get(defaultConfiguration, "opus.latency.low").getAsInt(),
+                ConfigurationHelper.get(defaultConfiguration, "opus.latency.high").getAsInt()
+        );
+
+        this.mixer.addSink(sink);
+
+        this.queueCapacity = (bufferSize / (int) (sink.getFrameSize() * channels)) + 2;
+    }
+
+    /**
+     * Opens the source and starts ticking the mixer.
+     */
+    void start(BroadcastManager.ChannelFactory channelFactory) throws IOException {
+        MixerChannel channel = channelFactory.open(mixer);
+        this.channel = channel;
+        mixer.addChannel(channel);
+
+        // Record the stream, unless it's already being played from the cache
+        if (packetCache != null && !packetCache.contains(source, opusParameters)) {
+            synchronized (pumpLock) {
+                recording = packetCache.record(source, opusParameters, sink.getChannels());
+                recordingStepsDown = getStepsDown();
+                recordingOverflows = sink.getOverflows();
+            }
+        }
+
+        this.scheduledMixer = scheduler.schedule(
+                mixer,
+                20D,
+                2D,
+                MixerClock.fromJson(defaultConfiguration, new JsonObject()),
+                (long) (ConfigurationHelper.get(defaultConfiguration, "mixer.slowTick").getAsDouble() * 1_000_000_000D)
+        );
+    }
+
+    public URI getSource() {
+        return source;
+    }
+
+    public OpusParameters getOpusParameters() {
+        return opusParameters;
+    }
+
+    public BufferedMixer getMixer() {
+        return mixer;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    CodecType getCodec() {
+        return sink.getCodec();
+    }
+
+    /**
+     * Finds if the broadcast has encoded packets coming, i.e. it is open and its encoder is running or draining.
+     * @return true if ready, false otherwise
+     */
+    boolean isReady() {
+        return !closed && sink.isReady();
+    }
+
+    /**
+     * Finds if the broadcast has ended: closed, or its source has played out and every packet has been pumped.
+     * @return true if finished, false otherwise
+     */
+    public boolean isFinished() {
+        return closed || (!mixer.isPlaying() && !sink.isReady());
+    }
+
+    /**
+     * Moves the next encoded packet, if any, into every subscriber's queue.
+     */
+    void pump() {
+        synchronized (pumpLock) {
+            if (!sink.isReady()) {
+                finishRecording();
+                return;
+            }
+
+            byte[] packet = sink.provide();
+            if (packet.length == 0) return;
+
+            if (recording != null) recording.write(packet, packet.length);
+
+            for (BroadcastSubscription subscription : subscriptions)
+                subscription.offer(packet);
+
+            if (!sink.isReady()) finishRecording();
+        }
+    }
+
+    /**
+     * Commits the recording once every packet has been pumped, if the source played out, and the encoder never had to
+     * lower its quality or drop frames on the way.
+     */
+    private void finishRecording() {
+        if (recording == null || mixer.isPlaying()) return;
+
+        PacketCacheWriter recording = this.recording;
+        this.recording = null;
+
+        MixerChannel channel = this.channel;
+        if (channel == null || channel.isPlaying() || getStepsDown() != recordingStepsDown ||
+                sink.getOverflows() != recordingOverflows) {
+            // Stopped by an error, partly encoded at a lower complexity or bitrate, or with frames missing
+            recording.close();
+            return;
+        }
+
+        if (recording.commit())
+            Logger.getGlobal().info("Cached " + recording.getPackets() + " packets of " + source);
+    }
+
+    private long getStepsDown() {
+        return sink.getGovernor() != null ? sink.getGovernor().getStepsDown() : 0L;
+    }
+
+    /**
+     * Adds a subscriber.
+     * @return Subscription, or null if the broadcast already closed
+     */
+    BroadcastSubscription subscribe() {
+        synchronized (subscriptionLock) {
+            if (closed) return null;
+
+            BroadcastSubscription subscription = new BroadcastSubscription(this, queueCapacity);
+
+            BroadcastSubscription[] subscriptions = Arrays.copyOf(this.subscriptions, this.subscriptions.length + 1);
+            subscriptions[subscriptions.length - 1] = subscription;
+            this.subscriptions = subscriptions;
+
+            return subscription;
+        }
+    }
+
+    /**
+     * Removes a subscriber, closing the broadcast once nobody is left.
+     */
+    void unsubscribe(BroadcastSubscription subscription) {
+        synchronized (subscriptionLock) {
+            BroadcastSubscription[] subscriptions = this.subscriptions;
+
+            for (int i = 0; i < subscriptions.length; i ++) {
+                if (subscriptions[i] == subscription) {
+                    BroadcastSubscription[] copy = Arrays.copyOf(subscriptions, subscriptions.length - 1);
+                    System.arraycopy(subscriptions, i + 1, copy, i, subscriptions.length - i - 1);
+                    this.subscriptions = copy;
+                    break;
+                }
+            }
+
+            if (this.subscriptions.length > 0 || closed) return;
+
+            closed = true;
+        }
+
+        shutdown();
+    }
+
+    /**
+     * Closes the broadcast; its subscribers see it as finished.
+     */
+    public void close() {
+        synchronized (subscriptionLock) {
+            if (closed) return;
+
+            closed = true;
+        }
+
+        shutdown();
+    }
+
+    private void shutdown() {
+        MixerScheduler.ScheduledMixer scheduledMixer = this.scheduledMixer;
+        if (scheduledMixer != null) scheduledMixer.cancel();
+
+        for (MixerChannel channel : mixer.getChannels()) {
+            mixer.removeChannel(channel);
+
+            try {
+                channel.close();
+            } catch (Exception e) {
+                Logger.getGlobal().log(Level.WARNING, "Problem closing broadcast channel", e);
+            }
+        }
+
+        sink.close();
+
+        synchronized (pumpLock) {
+            if (recording != null) {
+                recording.close();
+                recording = null;
+            }
+        }
+
+        manager.remove(this);
+    }
+}
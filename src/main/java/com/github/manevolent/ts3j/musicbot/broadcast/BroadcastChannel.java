@@ -0,0 +1,142 @@
+package com.github.manevolent.ts3j.musicbot.broadcast;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.PacketMixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusDecoder;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusPacketRing;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusUtil;
+
+import java.io.IOException;
+
+/**
+ * Plays a subscription's packets in a bot's own mixer, so that more can be mixed in without leaving the broadcast.
+ *
+ * The broadcast keeps playing as it was, for this subscriber and any other, and the channel carries on from the
+ * subscription's next queued packet.  Like OpusPacketPlayer, the packets are passed through while the channel plays
+ * alone, and decoded otherwise.  Reads never wait for the broadcast: when no packet has been encoded yet, the channel
+ * is read as (no) samples.
+ */
+public class BroadcastChannel implements PacketMixerChannel {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int MAXIMUM_PACKET_SAMPLES = 5760; // 120ms, per channel
+
+    private final BroadcastSubscription subscription;
+    private final OpusDecoder decoder;
+    private final float[] decodeBuffer = new float[MAXIMUM_PACKET_SAMPLES * CHANNELS];
+    private int decodePosition, decodeLength; // Decoded samples not yet read
+    private boolean decoderInSync = true; // Whether the decoder has seen every packet so far
+
+    /**
+     * @param subscription Subscription to play, no longer used as a microphone; closed with the channel
+     */
+    public BroadcastChannel(BroadcastSubscription subscription) {
+        this.subscription = subscription;
+        this.decoder = new OpusDecoder(SAMPLE_RATE, MAXIMUM_PACKET_SAMPLES, CHANNELS);
+    }
+
+    /**
+     * Gets the next queued packet, dropping any that are malformed.
+     * @return Packet, or null if none is queued
+     */
+    private OpusPacketRing.Packet nextPacket() {
+        OpusPacketRing.Packet packet;
+
+        while ((packet = subscription.peek()) != null) {
+            if (OpusUtil.getPacketSamples(packet.getData(), packet.getLength()) > 0) break;
+
+            subscription.release();
+        }
+
+        return packet;
+    }
+
+    @Override
+    public int peekPacket() {
+        // Samples already decoded have to be read as samples first
+        if (decodePosition < decodeLength) return 0;
+
+        OpusPacketRing.Packet packet = nextPacket();
+        if (packet == null) return subscription.isFinished() ? -1 : 0;
+
+        return OpusUtil.getPacketSamples(packet.getData(), packet.getLength()) * CHANNELS;
+    }
+
+    @Override
+    public int readPacket(byte[] buffer) throws IOException {
+        if (peekPacket() <= 0) throw new IllegalStateException("no packet");
+
+        OpusPacketRing.Packet packet = subscription.peek();
+        int length = packet.getLength();
+        if (length > buffer.length) throw new IOException("packet too long: " + length + " > " + buffer.length);
+
+        System.arraycopy(packet.getData(), 0, buffer, 0, length);
+        subscription.release();
+
+        // The decoder missed this packet; it has to start over if samples are needed again
+        decoderInSync = false;
+
+        return length;
+    }
+
+    @Override
+    public int available() {
+        int available = decodeLength - decodePosition;
+
+        OpusPacketRing.Packet packet = decodePosition < decodeLength ? null : nextPacket();
+        if (packet != null) available += OpusUtil.getPacketSamples(packet.getData(), packet.getLength()) * CHANNELS;
+
+        return available;
+    }
+
+    @Override
+    public int read(float[] buffer, int offs, int len) {
+        int pos = 0;
+
+        while (pos < len) {
+            if (decodePosition >= decodeLength) {
+                OpusPacketRing.Packet packet = nextPacket();
+                if (packet == null) break; // Underrun
+
+                if (!decoderInSync) {
+                    decoder.reset();
+                    decoderInSync = true;
+                }
+
+                decodeLength = decoder.decode(packet.getData(), packet.getLength(), decodeBuffer) * CHANNELS;
+                decodePosition = 0;
+                subscription.release();
+            }
+
+            int read = Math.min(len - pos, decodeLength - decodePosition);
+            System.arraycopy(decodeBuffer, decodePosition, buffer, offs + pos, read);
+            decodePosition += read;
+            pos += read;
+        }
+
+        return pos;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    @Override
+    public int getChannels() {
+        return CHANNELS;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return decodePosition < decodeLength || !subscription.isFinished();
+    }
+
+    @Override
+    public void close() {
+        try {
+            subscription.close();
+        } finally {
+            decoder.close();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.manevolent.ts3j.musicbot.broadcast;
+
+import com.github.manevolent.ts3j.musicbot.audio.mixer.Mixer;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerScheduler;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusEncoderPool;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusParameters;
+import com.github.manevolent.ts3j.musicbot.cache.PacketCache;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+
+/**
+ * Shares one playback pipeline between every bot playing the same source with the same Opus parameters.
+ *
+ * Downloading, decoding, resampling, filtering and encoding run once per distinct stream; each subscribed bot only
+ * receives a copy of the encoded packets, so the cost scales with streams rather than listeners.
+ *
+ * A broadcast is reserved under the lock but started outside it, as opening its source can take seconds: bots
+ * subscribing to a broadcast that is still starting wait for it, and nobody else does.
+ */
+public class BroadcastManager {
+    private final JsonObject defaultConfiguration;
+    private final MixerScheduler scheduler;
+    private final OpusEncoderPool encoderPool;
+    private final PacketCache packetCache;
+
+    private final Map<Key, CompletableFuture<Broadcast>> broadcasts = new HashMap<>(); // Completed once started
+
+    /**
+     * @param packetCache Cache to record finished broadcasts into; null to not record them
+     */
+    public BroadcastManager(JsonObject defaultConfiguration, MixerScheduler scheduler, OpusEncoderPool encoderPool,
+                            PacketCache packetCache) {
+        this.defaultConfiguration = defaultConfiguration;
+        this.scheduler = scheduler;
+        this.encoderPool = encoderPool;
+        this.packetCache = packetCache;
+    }
+
+    /**
+     * Subscribes to the broadcast of a source, starting it if nobody is playing it yet.
+     * @param source Source to play
+     * @param opusParameters Encoder parameters the subscriber requires
+     * @param channelFactory Opens the source for a new broadcast's mixer; only called when starting a broadcast
+     * @return Subscription, to be used as the subscriber's microphone
+     * @throws IOException if the source could not be opened
+     */
+    public BroadcastSubscription subscribe(URI source,
+                                           OpusParameters opusParameters,
+                                           ChannelFactory channelFactory) throws IOException {
+        Key key = new Key(source, opusParameters);
+
+        while (true) {
+            CompletableFuture<Broadcast> future;
+            boolean starting = false;
+
+            synchronized (this) {
+                future = broadcasts.get(key);
+
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    broadcasts.put(key, future);
+                    starting = true;
+                }
+            }
+
+            Broadcast broadcast = starting ?
+                    start(key, future, source, opusParameters, channelFactory) :
+                    await(future, source);
+
+            BroadcastSubscription subscription = broadcast.subscribe();
+            if (subscription != null) return subscription;
+
+            // It just finished or closed, so another one is started
+            synchronized (this) {
+                broadcasts.remove(key, future);
+            }
+        }
+    }
+
+    private Broadcast start(Key key, CompletableFuture<Broadcast> future, URI source, OpusParameters opusParameters,
+                            ChannelFactory channelFactory) throws IOException {
+        Broadcast broadcast = new Broadcast(
+                this, source, opusParameters, defaultConfiguration, scheduler, encoderPool, packetCache
+        );
+
+        try {
+            broadcast.start(channelFactory);
+        } catch (Throwable e) { // Anyone waiting for it has to be let go, however it failed
+            broadcast.close();
+
+            synchronized (this) {
+                broadcasts.remove(key, future);
+            }
+
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        future.complete(broadcast);
+
+        Logger.getGlobal().info("Started broadcast of " + source);
+
+        return broadcast;
+    }
+
+    private static Broadcast await(CompletableFuture<Broadcast> future, URI source) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Problem starting broadcast of " + source, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for broadcast of " + source);
+        }
+    }
+
+    /**
+     * Gets the count of streams currently broadcasting.
+     * @return Broadcast count
+     */
+    public synchronized int getBroadcasts() {
+        return broadcasts.size();
+    }
+
+    synchronized void remove(Broadcast broadcast) {
+        Key key = new Key(broadcast.getSource(), broadcast.getOpusParameters());
+        CompletableFuture<Broadcast> future = broadcasts.get(key);
+
+        if (future != null && future.getNow(null) == broadcast) {
+            broadcasts.remove(key);
+            Logger.getGlobal().info("Stopped broadcast of " + broadcast.getSource());
+        }
+    }
+
+    public interface ChannelFactory {
+        /**
+         * Opens a source as a channel in the given mixer's format.
+         * @param mixer Mixer the channel is added to
+         * @return Channel
+         * @throws IOException if the source could not be opened
+         */
+        MixerChannel open(Mixer mixer) throws IOException;
+    }
+
+    /**
+     * Subscribers share a broadcast if they play the same source into the same bitstream, however they would encode it.
+     */
+    private static final class Key {
+        private final URI source;
+        private final String bitstream;
+
+        private Key(URI source, OpusParameters opusParameters) {
+            this.source = source;
+            this.bitstream = opusParameters.getBitstreamKey();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return source.equals(other.source) && bitstream.equals(other.bitstream);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, bitstream);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.manevolent.ts3j.musicbot.broadcast;
+
+import com.github.manevolent.ts3j.audio.Microphone;
+import com.github.manevolent.ts3j.enums.CodecType;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusPacketRing;
+import com.github.manevolent.ts3j.musicbot.client.TeamspeakFastMixerSink;
+
+/**
+ * One subscriber's view of a broadcast: its own packet queue and read position, served to ts3j as a microphone, or
+ * played in the subscriber's own mixer through a BroadcastChannel.
+ *
+ * The queue is filled by whichever subscriber pumps the broadcast, and drained only by this subscriber's network
+ * thread, or by its mixer once it plays the subscription as a channel.
+ */
+public class BroadcastSubscription implements Microphone, AutoCloseable {
+    private static final byte[] EMPTY_PACKET = new byte[0];
+
+    private final Broadcast broadcast;
+    private final OpusPacketRing packetRing;
+    private final byte[][] packetArrays = new byte[TeamspeakFastMixerSink.MAXIMUM_OPUS_PACKET_SIZE + 1][];
+
+    private volatile boolean closed = false;
+
+    // Written while pumping (under the broadcast's pump lock) and by the network thread, respectively
+    private volatile long packetsReceived = 0L, packetsDropped = 0L;
+    private volatile long packetsSent = 0L;
+
+    BroadcastSubscription(Broadcast broadcast, int capacity) {
+        this.broadcast = broadcast;
+        this.packetRing = new OpusPacketRing(capacity, TeamspeakFastMixerSink.MAXIMUM_OPUS_PACKET_SIZE);
+    }
+
+    public Broadcast getBroadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Queues a copy of a packet.  Called while pumping; drops the packet if this subscriber has fallen behind.
+     */
+    void offer(byte[] packet) {
+        OpusPacketRing.Packet slot = packetRing.claim();
+
+        if (slot == null) {
+            packetsDropped++;
+            return;
+        }
+
+        slot.getBuffer().put(packet);
+        slot.set(packet.length, 0);
+        packetRing.publish();
+
+        packetsReceived++;
+    }
+
+    @Override
+    public boolean isReady() {
+        if (closed) return false;
+
+        if (packetRing.isEmpty()) {
+            // Unsubscribe once the broadcast has played out
+            if (broadcast.isFinished()) {
+                close();
+                return false;
+            }
+
+            return broadcast.isReady();
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds if the subscription has played out: closed, or every packet of a finished broadcast has been read.
+     * @return true if finished, false otherwise
+     */
+    boolean isFinished() {
+        return closed || (packetRing.isEmpty() && broadcast.isFinished());
+    }
+
+    @Override
+    public CodecType getCodec() {
+        return broadcast.getCodec();
+    }
+
+    /**
+     * Provides the next broadcast packet.  As with TeamspeakFastMixerSink, the returned array is reused for packets of
+     * the same length, so it is only valid until the next call.
+     * @return Encoded OPUS audio packet (zero-length packet if there is an underflow).
+     */
+    @Override
+    public byte[] provide() {
+        OpusPacketRing.Packet packet = peek();
+        if (packet == null) return EMPTY_PACKET;
+
+        int length = packet.getLength();
+        byte[] bytes = packetArrays[length];
+        if (bytes == null) bytes = packetArrays[length] = new byte[length];
+
+        System.arraycopy(packet.getData(), 0, bytes, 0, length);
+        release();
+
+        return bytes;
+    }
+
+    /**
+     * Gets the next queued packet, pumping the broadcast if there is none.
+     * @return Packet, valid until release(), or null if none is queued
+     */
+    OpusPacketRing.Packet peek() {
+        if (closed) return null;
+
+        if (packetRing.isEmpty()) broadcast.pump();
+
+        return packetRing.peek();
+    }
+
+    /**
+     * Releases the packet returned by peek(), as sent.
+     */
+    void release() {
+        packetRing.release();
+
+        packetsSent++;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /**
+     * Gets the count of packets this subscriber missed because its queue was full.
+     * @return Dropped packets
+     */
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * Leaves the broadcast.  The broadcast closes when its last subscriber leaves.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+
+        closed = true;
+        broadcast.unsubscribe(this);
+    }
+}
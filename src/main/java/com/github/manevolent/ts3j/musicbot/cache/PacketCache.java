@@ -0,0 +1,284 @@
+package com.github.manevolent.ts3j.musicbot.cache;
+
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusPacketSource;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusParameters;
+import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the encoded packets of played tracks on disk, so a track played again with the same Opus parameters is sent
+ * as-is instead of being downloaded, decoded, resampled and encoded again.
+ *
+ * Each entry is one file, named after a hash of the source and the parameters: a small header followed by every
+ * packet prefixed with its length.  Entries are memory mapped for playback.  The total size is capped; when an entry
+ * is added over the cap, the least recently played entries are deleted.  Recency survives restarts through the files'
+ * modification times.
+ */
+public class PacketCache {
+    static final int MAGIC = 0x4F504331; // "OPC1"
+    static final int HEADER_SIZE = 8; // Magic, channels
+
+    private static final String SUFFIX = ".opc";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maximumSize;
+
+    // Entry name -> size, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private long size = 0L;
+
+    private volatile long hits = 0L, misses = 0L, evictions = 0L;
+
+    /**
+     * @param directory Directory holding the entries; created if missing
+     * @param maximumSize Total size of the entries, in bytes
+     * @throws IOException if the directory could not be created
+     */
+    public PacketCache(File directory, long maximumSize) throws IOException {
+        if (maximumSize <= 0L) throw new IllegalArgumentException("invalid cache size: " + maximumSize);
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("failed to create cache directory: " + directory);
+
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+
+        File[] files = directory.listFiles();
+        if (files == null) throw new IOException("failed to list cache directory: " + directory);
+
+        // Recordings that never finished, e.g. because the process died
+        for (File file : files)
+            if (file.getName().endsWith(TEMPORARY_SUFFIX) && !file.delete())
+                Logger.getGlobal().warning("Failed to delete incomplete cache entry " + file);
+
+        List<File> existing = new ArrayList<>();
+        for (File file : files)
+            if (file.isFile() && file.getName().endsWith(SUFFIX)) existing.add(file);
+
+        existing.sort(Comparator.comparingLong(File::lastModified));
+
+        synchronized (this) {
+            for (File file : existing) {
+                entries.put(file.getName(), file.length());
+                size += file.length();
+            }
+
+            evict();
+        }
+
+        Logger.getGlobal().info("Packet cache has " + existing.size() + " entries (" + size + " bytes) in " + directory);
+    }
+
+    /**
+     * Finds if a track is cached.
+     * @return true if cached, false otherwise
+     */
+    public synchronized boolean contains(URI source, OpusParameters opusParameters) {
+        return entries.containsKey(getName(source, opusParameters));
+    }
+
+    /**
+     * Opens the cached packets of a track, marking it as recently used.
+     * @param source Source the packets were encoded from
+     * @param opusParameters Parameters they were encoded with
+     * @return Packets, or null if not cached
+     */
+    public synchronized OpusPacketSource open(URI source, OpusParameters opusParameters) {
+        String name = getName(source, opusParameters);
+
+        if (entries.get(name) == null) {
+            misses++;
+            return null;
+        }
+
+        File file = new File(directory, name);
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            // The mapping stays valid after the file is closed, and after it's deleted
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY,
+                    0L,
+                    randomAccessFile.length()
+            );
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+                throw new IOException("invalid cache entry");
+
+            int channels = buffer.getInt();
+
+            if (!file.setLastModified(System.currentTimeMillis()))
+                Logger.getGlobal().fine("Failed to touch cache entry " + file);
+
+            hits++;
+
+            return new MappedPacketSource(buffer, channels);
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.WARNING, "Problem opening cache entry " + file + "; removing it", e);
+            remove(name);
+
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Starts recording the packets of a track.  The entry only becomes visible once the recording is committed.
+     * @param source Source the packets are encoded from
+     * @param opusParameters Parameters they are encoded with
+     * @param channels Channel count of the packets
+     * @return Recording
+     * @throws IOException if the recording could not be created
+     */
+    public PacketCacheWriter record(URI source, OpusParameters opusParameters, int channels) throws IOException {
+        String name = getName(source, opusParameters);
+        File file = File.createTempFile(name, TEMPORARY_SUFFIX, directory);
+
+        // One entry can't exceed the cache, nor what one mapping can hold
+        return new PacketCacheWriter(this, file, name, channels, Math.min(maximumSize, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Moves a finished recording into place.
+     */
+    synchronized void commit(File file, String name) throws IOException {
+        remove(name);
+
+        File target = new File(directory, name);
+        if (!file.renameTo(target)) throw new IOException("failed to rename " + file + " to " + target);
+
+        entries.put(name, target.length());
+        size += target.length();
+
+        evict();
+    }
+
+    private void remove(String name) {
+        Long removed = entries.remove(name);
+        if (removed != null) size -= removed;
+
+        File file = new File(directory, name);
+        if (file.exists() && !file.delete())
+            Logger.getGlobal().warning("Failed to delete cache entry " + file);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+
+        while (size > maximumSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+
+            // Anything still playing it keeps its mapping
+            File file = new File(directory, entry.getKey());
+            if (!file.delete()) Logger.getGlobal().warning("Failed to delete cache entry " + file);
+
+            evictions++;
+        }
+    }
+
+    public synchronized int getEntries() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    private static String getName(URI source, OpusParameters opusParameters) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+                    (source.toString() + "\n" + opusParameters.getBitstreamKey()).getBytes(StandardCharsets.UTF_8)
+            );
+
+            StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) name.append(String.format("%02x", b & 0xFF));
+
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates the cache from configuration.
+     * @return Cache, or null if caching is disabled
+     * @throws IOException if the cache directory could not be opened
+     */
+    public static PacketCache fromJson(JsonObject defaultConfiguration) throws IOException {
+        if (!ConfigurationHelper.get(defaultConfiguration, "cache.enabled").getAsBoolean())
+            return null;
+
+        return new PacketCache(
+                new File(ConfigurationHelper.get(defaultConfiguration, "cache.directory").getAsString()),
+                (long) (ConfigurationHelper.get(defaultConfiguration, "cache.size").getAsDouble() * 1024D * 1024D)
+        );
+    }
+
+    /**
+     * Reads the packets of a mapped entry.
+     */
+    private static final class MappedPacketSource implements OpusPacketSource {
+        private final int channels;
+        private MappedByteBuffer buffer;
+
+        private MappedPacketSource(MappedByteBuffer buffer, int channels) {
+            this.buffer = buffer;
+            this.channels = channels;
+        }
+
+        @Override
+        public int getChannels() {
+            return channels;
+        }
+
+        @Override
+        public int next(byte[] packet) throws IOException {
+            MappedByteBuffer buffer = this.buffer;
+            if (buffer == null || buffer.remaining() < 2) return -1;
+
+            int length = buffer.getShort() & 0xFFFF;
+            if (length > buffer.remaining()) throw new IOException("truncated cache entry");
+            if (length > MAXIMUM_PACKET_SIZE) throw new IOException("packet too long: " + length);
+
+            buffer.get(packet, 0, length);
+
+            return length;
+        }
+
+        @Override
+        public void close() {
+            // Unmapped once collected
+            buffer = null;
+        }
+    }
+}
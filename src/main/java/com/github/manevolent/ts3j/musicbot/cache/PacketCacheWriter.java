@@ -0,0 +1,128 @@
+package com.github.manevolent.ts3j.musicbot.cache;
+
+import java.io.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records packets into a temporary file, which becomes a PacketCache entry when committed.
+ *
+ * A recording that fails or grows past the entry limit is abandoned: its file is deleted and further packets are
+ * ignored.  Not thread-safe.
+ */
+public class PacketCacheWriter implements AutoCloseable {
+    private final PacketCache cache;
+    private final File file;
+    private final String name;
+    private final long maximumLength;
+
+    private DataOutputStream outputStream;
+    private long length;
+    private long packets = 0L;
+
+    PacketCacheWriter(PacketCache cache, File file, String name, int channels, long maximumLength)
+            throws IOException {
+        this.cache = cache;
+        this.file = file;
+        this.name = name;
+        this.maximumLength = maximumLength;
+
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+
+        try {
+            outputStream.writeInt(PacketCache.MAGIC);
+            outputStream.writeInt(channels);
+        } catch (IOException e) {
+            abandon();
+            throw e;
+        }
+
+        this.length = PacketCache.HEADER_SIZE;
+    }
+
+    /**
+     * Finds if the recording is still going, i.e. neither committed nor abandoned.
+     * @return true if recording, false otherwise
+     */
+    public boolean isRecording() {
+        return outputStream != null;
+    }
+
+    public long getPackets() {
+        return packets;
+    }
+
+    /**
+     * Appends a packet.
+     * @param packet Packet
+     * @param length Packet length
+     * @return true if recorded, false if the recording was abandoned
+     */
+    public boolean write(byte[] packet, int length) {
+        if (outputStream == null) return false;
+
+        if (length > 0xFFFF || this.length + 2 + length > maximumLength) {
+            Logger.getGlobal().fine("Abandoning packet cache recording " + file + ": too long");
+            abandon();
+            return false;
+        }
+
+        try {
+            outputStream.writeShort(length);
+            outputStream.write(packet, 0, length);
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.WARNING, "Problem writing packet cache recording " + file, e);
+            abandon();
+            return false;
+        }
+
+        this.length += 2 + length;
+        packets++;
+
+        return true;
+    }
+
+    /**
+     * Finishes the recording, adding it to the cache.
+     * @return true if committed, false if the recording had been abandoned or could not be committed
+     */
+    public boolean commit() {
+        if (outputStream == null) return false;
+
+        try {
+            outputStream.close();
+            outputStream = null;
+
+            cache.commit(file, name);
+
+            return true;
+        } catch (IOException e) {
+            Logger.getGlobal().log(Level.WARNING, "Problem committing packet cache recording " + file, e);
+            abandon();
+            return false;
+        }
+    }
+
+    private void abandon() {
+        if (outputStream != null) {
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+
+            outputStream = null;
+        }
+
+        if (file.exists() && !file.delete())
+            Logger.getGlobal().warning("Failed to delete packet cache recording " + file);
+    }
+
+    /**
+     * Abandons the recording, unless it was committed.
+     */
+    @Override
+    public void close() {
+        if (outputStream != null) abandon();
+    }
+}
@@ -4,15 +4,29 @@ import com.github.manevolent.ts3j.event.*;
 import com.github.manevolent.ts3j.identity.LocalIdentity;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.BufferedMixer;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.Mixer;
-import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerProcessTask;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerClock;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.MixerScheduler;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MixerFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.MultiChannelMixerFilter;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.FilterDither;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.FilterGain;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.filter.type.SoftClipFilter;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.input.MixerChannel;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.stats.MixerMonitor;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusEncoderPool;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusGovernor;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusPacketSource;
 import com.github.manevolent.ts3j.musicbot.audio.opus.OpusParameters;
 import com.github.manevolent.ts3j.musicbot.audio.player.AudioPlayer;
-import com.github.manevolent.ts3j.musicbot.audio.player.ResampledAudioPlayer;
-import com.github.manevolent.ts3j.musicbot.audio.resample.FFmpegResampler;
+import com.github.manevolent.ts3j.musicbot.audio.player.OpusPacketPlayer;
+import com.github.manevolent.ts3j.musicbot.audio.player.PlayQueue;
+import com.github.manevolent.ts3j.musicbot.audio.player.PlaybackPlanner;
+import com.github.manevolent.ts3j.musicbot.audio.resample.ResamplerProfile;
+import com.github.manevolent.ts3j.musicbot.audio.resample.ResamplerProfiles;
+import com.github.manevolent.ts3j.musicbot.broadcast.BroadcastChannel;
+import com.github.manevolent.ts3j.musicbot.broadcast.BroadcastManager;
+import com.github.manevolent.ts3j.musicbot.broadcast.BroadcastSubscription;
+import com.github.manevolent.ts3j.musicbot.cache.PacketCache;
 import com.github.manevolent.ts3j.musicbot.config.ConfigurationHelper;
 import com.github.manevolent.ts3j.musicbot.download.DownloadManager;
 import com.github.manevolent.ts3j.musicbot.download.DownloadSource;
@@ -22,10 +36,13 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import javax.management.JMException;
 import javax.sound.sampled.AudioFormat;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -36,17 +53,35 @@ public class TeamspeakBot implements TS3Listener {
 
     private final LocalTeamspeakClientSocket client;
     private final Mixer mixer;
+    private final MixerScheduler.ScheduledMixer scheduledMixer;
+    private final MixerMonitor mixerMonitor;
+    private final TeamspeakMicrophone microphone;
+    private final FilterGain gainFilter;
+    private final OpusParameters opusParameters;
+    private final BroadcastManager broadcastManager;
+    private final PacketCache packetCache;
 
     private final Callable<LocalIdentity> identityCallable;
     private final Consumer<Float> volumeControl;
 
     private final DownloadManager downloadManager;
+    private final PlaybackPlanner playbackPlanner;
+
+    private final ExecutorService prefetchExecutor;
+    private final int prebufferSize;
+    private final long prefetchTimeoutNanos;
+    private PlayQueue queue;
 
     private boolean running = false;
 
-    public TeamspeakBot(JsonObject defaultConfiguration, JsonObject serverConfiguration) {
+    public TeamspeakBot(JsonObject defaultConfiguration, JsonObject serverConfiguration,
+                        MixerScheduler scheduler, OpusEncoderPool encoderPool, BroadcastManager broadcastManager,
+                        PacketCache packetCache, ResamplerProfiles resamplerProfiles,
+                        ExecutorService prefetchExecutor) {
         this.defaultConfiguration = defaultConfiguration;
         this.serverConfiguration = serverConfiguration;
+        this.broadcastManager = broadcastManager;
+        this.packetCache = packetCache;
 
         this.client = new LocalTeamspeakClientSocket();
         this.client.addListener(this);
@@ -105,7 +140,8 @@ public class TeamspeakBot implements TS3Listener {
                 sampleRate *
                 ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.buffer").getAsFloat();
         int bufferSize = (int) (bufferSizePerChannel * channels);
-        this.mixer = new BufferedMixer(bufferSize, sampleRate, channels);
+        BufferedMixer mixer = new BufferedMixer(bufferSize, sampleRate, channels);
+        this.mixer = mixer;
 
         // < Filter chain >
         // Mine is rather basic. You could add EQs, limiters, stereo separation, light reverberation, etc. here
@@ -113,11 +149,10 @@ public class TeamspeakBot implements TS3Listener {
         // See the respective Filter java files for more information.
         {
             // Add a gain/volume filter, and attach the filter's control to the volumeControl function.
-            FilterGain gainFilter = new FilterGain(1f);
-            MixerFilter[] multichannelGainFilter = new MixerFilter[channels];
-            for (int ch = 0; ch < channels; ch++) multichannelGainFilter[ch] = gainFilter;
+            // The gain is stereo-linked, so it is added once for all channels.
+            this.gainFilter = new FilterGain(1f);
             this.volumeControl = gainFilter::setQ;
-            this.mixer.addFilter(multichannelGainFilter);
+            this.mixer.addFilter((MultiChannelMixerFilter) gainFilter);
 
             // Add a soft-clip filter, which protects the output of the mixer from going beyond the limit of [-1,1]
             MixerFilter[] multichannelClipFilter = new MixerFilter[channels];
@@ -133,20 +168,49 @@ public class TeamspeakBot implements TS3Listener {
         }
 
         // Create a sink, which is used to move raw audio samples into Teamspeak over a packet buffer (rather efficient)
+        this.opusParameters = OpusParameters.fromJson(defaultConfiguration, serverConfiguration);
         TeamspeakFastMixerSink sink = new TeamspeakFastMixerSink(
                 new AudioFormat(sampleRate, 32, channels, true, false),
                 bufferSize * 4,
-                OpusParameters.fromJson(defaultConfiguration, serverConfiguration)
+                opusParameters,
+                encoderPool, // Encode off the mixer thread
+                OpusGovernor.fromJson(defaultConfiguration, serverConfiguration, opusParameters, encoderPool)
+        );
+
+        // Keep enough queued to ride out scheduling hiccups, but no more, since all of it is delay
+        sink.setLatencyWatermarks(
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.latency.low").getAsInt(),
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "opus.latency.high").getAsInt()
         );
 
         // Add the sink into the mixer so that samples may flush down into this sink.
         this.mixer.addSink(sink);
 
-        Thread mixerThread = new Thread(new MixerProcessTask(mixer, 20D, 2D));
-        mixerThread.start();
+        // Tick the mixer on the shared scheduler, rather than on a thread of its own
+        this.scheduledMixer = scheduler.schedule(
+                mixer,
+                20D,
+                2D,
+                MixerClock.fromJson(defaultConfiguration, serverConfiguration),
+                (long) (ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "mixer.slowTick")
+                        .getAsDouble() * 1_000_000_000D)
+        );
+
+        // Expose the mixer's tick statistics over JMX
+        this.mixerMonitor = new MixerMonitor(scheduledMixer, mixer.getStatistics());
+        try {
+            mixerMonitor.register(
+                    ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "address").getAsString(),
+                    ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "bot.nickname").getAsString()
+            );
+        } catch (JMException e) {
+            Logger.getGlobal().log(Level.WARNING, "Failed to register mixer monitor", e);
+        }
 
         // Set the TS3J microphone so that the client can send the audio data to the Teamspeak3 server.
-        client.setMicrophone(sink);
+        // The microphone plays the sink, unless the bot is subscribed to a broadcast shared with other bots.
+        this.microphone = new TeamspeakMicrophone(sink);
+        client.setMicrophone(microphone);
 
         // Set up downloads
         downloadManager = new DownloadManager();
@@ -168,12 +232,37 @@ public class TeamspeakBot implements TS3Listener {
                 throw new IllegalArgumentException(e);
             }
         }
+
+        // Convert sources that aren't in the mixer's format, with the server's resampler profile
+        ResamplerProfile resamplerProfile = resamplerProfiles.get(defaultConfiguration, serverConfiguration);
+        this.playbackPlanner = new PlaybackPlanner(resamplerProfile.getFactory());
+
+        // Queued tracks are opened ahead of time on the shared prefetch threads
+        this.prefetchExecutor = prefetchExecutor;
+
+        this.prebufferSize = (int) (sampleRate *
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "queue.prebuffer").getAsFloat())
+                * channels;
+        this.prefetchTimeoutNanos = (long) (1_000_000_000D *
+                ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "queue.timeout").getAsDouble());
     }
 
     public LocalTeamspeakClientSocket getClient() {
         return client;
     }
 
+    public MixerScheduler.ScheduledMixer getScheduledMixer() {
+        return scheduledMixer;
+    }
+
+    public MixerMonitor getMixerMonitor() {
+        return mixerMonitor;
+    }
+
+    public TeamspeakMicrophone getMicrophone() {
+        return microphone;
+    }
+
     public void setRunning(boolean running) {
         if (this.running != running) {
 
@@ -250,23 +339,64 @@ public class TeamspeakBot implements TS3Listener {
 
         String[] parts = message.split("\\s", 2);
         String label = parts[0].toLowerCase();
-        String arguments = parts[1];
+        String arguments = parts.length > 1 ? parts[1] : "";
 
         try {
             switch (label) {
-                case "v":
-                    AudioPlayer player = downloadManager.get(URI.create(arguments)).openPlayer();
-                    mixer.addChannel(
-                            new ResampledAudioPlayer(
-                                    player,
-                                    new FFmpegResampler(
-                                            new AudioFormat(player.getSampleRate(), 32, player.getChannels(), true, false),
-                                            new AudioFormat(mixer.getAudioSampleRate(), 32, mixer.getAudioChannels(), true, false),
-                                            mixer.getBufferSize()
-                                    ),
-                                    mixer.getBufferSize()
-                            )
-                    );
+                case "v": {
+                    URI uri = URI.create(arguments);
+
+                    // A broadcast being followed moves into the bot's own mixer, and the new stream is mixed with it
+                    leaveBroadcast();
+
+                    // Share the stream with other bots when nothing else is playing here and the volume is untouched,
+                    // as the broadcast is mixed without this bot's gain.  Cached packets are only exact then, too.
+                    boolean unity = mixer.getChannels().isEmpty() && gainFilter.getQ() == 1F;
+
+                    if (ConfigurationHelper.get(defaultConfiguration, serverConfiguration, "broadcast.enabled")
+                            .getAsBoolean() && unity) {
+                        microphone.setSubscription(
+                                broadcastManager.subscribe(uri, opusParameters, target -> openChannel(uri, target, true))
+                        );
+                    } else {
+                        mixer.addChannel(openChannel(uri, mixer, unity));
+                    }
+                    break;
+                }
+                case "q": {
+                    URI uri = URI.create(arguments);
+
+                    // As above, a broadcast being followed keeps playing alongside the queue
+                    leaveBroadcast();
+
+                    // Cached packets are exact while the queue is all that plays, at 100% volume (see above)
+                    PlayQueue.Track track = new PlayQueue.Track(uri.toString(), () -> openChannel(
+                            uri,
+                            mixer,
+                            mixer.getChannels().size() <= 1 && gainFilter.getQ() == 1F
+                    ));
+
+                    synchronized (this) {
+                        // A queue that ran dry was removed from the mixer, so it's replaced
+                        if (queue == null || !queue.add(track)) {
+                            queue = new PlayQueue(
+                                    (int) mixer.getAudioSampleRate(),
+                                    mixer.getAudioChannels(),
+                                    prefetchExecutor,
+                                    prebufferSize,
+                                    prefetchTimeoutNanos
+                            );
+
+                            queue.add(track);
+                            mixer.addChannel(queue);
+                        }
+                    }
+                    break;
+                }
+                case "skip":
+                    synchronized (this) {
+                        if (queue != null) queue.skip();
+                    }
                     break;
             }
         } catch (Exception ex) {
@@ -280,6 +410,36 @@ public class TeamspeakBot implements TS3Listener {
         }
     }
 
+    /**
+     * Stops sending a followed broadcast as the microphone, so that the microphone plays the bot's own mixer again,
+     * and more can be mixed in.  The subscription keeps playing in the mixer, from the packet it was at, and the
+     * broadcast carries on for any other bot following it.
+     */
+    private void leaveBroadcast() {
+        BroadcastSubscription subscription = microphone.getSubscription();
+        if (subscription == null) return;
+
+        microphone.setSubscription(null);
+        mixer.addChannel(new BroadcastChannel(subscription));
+    }
+
+    /**
+     * Opens a source as a channel in the given mixer's format.
+     * @param cached true to play the packets cached for the source, if any; they are sent as-is while nothing else is
+     *               mixed in and the volume is untouched, and would be decoded and encoded a second time otherwise
+     */
+    private MixerChannel openChannel(URI uri, Mixer target, boolean cached) throws IOException {
+        if (cached && packetCache != null) {
+            OpusPacketSource packets = packetCache.open(uri, opusParameters);
+            if (packets != null) return new OpusPacketPlayer(packets, target.getBufferSize());
+        }
+
+        AudioPlayer player = downloadManager.get(uri).openPlayer();
+
+        // Opus played without FFmpeg is already in the mixer's format, and passes through as packets
+        return playbackPlanner.build(player, target);
+    }
+
     @Override
     public void onClientJoin(ClientJoinEvent e) {
 
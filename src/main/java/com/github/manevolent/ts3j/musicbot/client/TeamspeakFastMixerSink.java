@@ -2,24 +2,55 @@ package com.github.manevolent.ts3j.musicbot.client;
 
 import com.github.manevolent.ts3j.audio.Microphone;
 import com.github.manevolent.ts3j.enums.CodecType;
+import com.github.manevolent.ts3j.musicbot.audio.AudioBuffer;
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernel;
+import com.github.manevolent.ts3j.musicbot.audio.kernel.AudioKernels;
 import com.github.manevolent.ts3j.musicbot.audio.mixer.output.OpusMixerSink;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.output.PacketMixerSink;
+import com.github.manevolent.ts3j.musicbot.audio.mixer.stats.Histogram;
+import com.github.manevolent.ts3j.musicbot.audio.opus.DirectOpusEncoder;
 import com.github.manevolent.ts3j.musicbot.audio.opus.OpusEncoder;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusGovernor;
+import com.github.manevolent.ts3j.musicbot.audio.opus.OpusPacketRing;
 import com.github.manevolent.ts3j.musicbot.audio.opus.OpusParameters;
 import net.tomp2p.opuswrapper.Opus;
 
 import javax.sound.sampled.AudioFormat;
-import java.util.NoSuchElementException;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
+public class TeamspeakFastMixerSink implements OpusMixerSink, PacketMixerSink, Microphone {
     public static final AudioFormat AUDIO_FORMAT =
             new AudioFormat(48000, 32, 2, true, false);
 
+    // Maximum length of one encoded packet, in bytes
+    public static final int MAXIMUM_OPUS_PACKET_SIZE = 4096;
+
+    // Returned to the network thread on underflow
+    private static final byte[] EMPTY_PACKET = new byte[0];
+
+    // Silent frames encoded normally before repeating a cached packet, letting the encoder settle on silence
+    private static final int SILENCE_HANGOVER_FRAMES = 5;
+
+    // Writes remembered for latency stamps; beyond that, a write is stamped with the time of the one before it
+    private static final int STAMP_CAPACITY = 64;
+
+    // Longest wait for the encode stage to finish a pass when stopping it
+    private static final long ENCODER_HALT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // Latency histograms
+    private static final long MAX_TRACKED_NANOS = 10_000_000_000L;
+    private static final int PRECISION = 6;
+
     private final Object stateLock = new Object();
     private final Object drainLock = new Object();
+    private final Object idleLock = new Object(); // Notified when the encode stage goes idle while halted
 
     // Audio format
     private final AudioFormat audioFormat; // Audio output format (mostly just ensured to match certain parameters)
@@ -27,6 +58,7 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
     // OPUS variables
     private final OpusParameters opusParameters; // Opus parameters set by configurations
     private volatile OpusEncoder encoder = null; // Opus encoder instance
+    private final OpusGovernor governor; // Adjusts complexity and bitrate to the encode load; null if fixed
     private final int opusFrameSize; // Opus frame size (PER CHANNEL!) (also the ASIO chunk size)
     private long opusPacketsEncoded = 0, opusPacketsSent = 0;
     private long opusTime = 0;
@@ -34,28 +66,92 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
     private long opusPosition = 0;
     private long opusBytePosition = 0;
 
+    // Silence variables (encode stage only)
+    private final AudioKernel kernel = AudioKernels.get();
+    private final float silenceThreshold; // Peak amplitude of a silent frame; negative disables detection
+    private final byte[] silencePacket = new byte[MAXIMUM_OPUS_PACKET_SIZE]; // Last settled silent packet
+    private int silencePacketLength = 0; // 0 until a silent packet is cached
+    private int silenceRun = 0; // Consecutive silent frames
+    private long silentFrames = 0, opusEncodesSkipped = 0;
+
+    // Packets passed through as-is, in place of encoded frames (see PacketMixerSink)
+    private long opusPacketsPassedThrough = 0;
+
     private long waitTime = 0;
 
     // Statistics variables
     private long underflowed = 0; // Underflowed samples (ASIO has to return 0 samples to the encoder)
-    private long overflowed = 0; // Overflowed samples (write returns 0)
+    private volatile long overflowed = 0; // Overflowed samples (write returns 0); read when recording broadcasts
     private long position = 0; // Position in samples
 
     // I/O variables
-    private final Queue<OpusPacket> packetQueue = new ConcurrentLinkedQueue<>();
+    private final OpusPacketRing packetRing; // Encoded packets, written by the encoder and read by the network thread
+    private final byte[][] packetArrays = new byte[MAXIMUM_OPUS_PACKET_SIZE + 1][]; // Network packets, by length
     private final int bufferSize; // Buffer size, in samples
-    private volatile int availableInput;
-    private volatile int samplePosition; // Position, in samples, of the ASIO buffer (available samples)
-    private final float[] sampleBuffer; // ASIO buffer
+    private final AtomicInteger availableInput = new AtomicInteger(0); // Samples not queued, out of bufferSize
+    private final AudioBuffer sampleBuffer; // PCM waiting to be encoded, written by the mixer and read by the encoder
+
+    // Batch being encoded (encode stage only): whole frames read from the sample buffer at once, and the packet slots
+    // of the frames going through the encoder
+    private final int opusBatch;
+    private final float[] batchBuffer;
+    private final OpusPacketRing.Packet[] batchPackets;
+    private final ByteBuffer[] batchTargets;
+    private final int[] batchLengths;
+
+    // Encode stage
+    private final Executor encoderExecutor; // Runs the encode stage; may run it inline on the mixer thread
+    private final AtomicBoolean encoding = new AtomicBoolean(false); // Encode stage submitted or running
+    private volatile boolean halted = false; // Encode stage may not take another pass (see haltEncoder())
+    private final Runnable encodeTask = this::encodePending;
+
+    // Latency stamps: where and when each write() started, in a ring written by the mixer thread and read by the
+    // encode stage, which stamps every packet with the time its first sample was written
+    private final long[] stampPositions = new long[STAMP_CAPACITY], stampTimes = new long[STAMP_CAPACITY];
+    private volatile long stampWrite = 0L, stampRead = 0L;
+    private long writePosition = 0L; // Samples written, including flush padding (mixer thread)
+    private long encodePosition = 0L; // Samples taken by the encode stage
+    private final Histogram encodeLatency = new Histogram(MAX_TRACKED_NANOS, PRECISION); // write() to encoded
+    private final Histogram packetLatency = new Histogram(MAX_TRACKED_NANOS, PRECISION); // write() to provide()
+
+    // Latency watermarks, in samples queued (see setLatencyWatermarks)
+    private volatile int lowWatermark = 0, highWatermark;
+    private volatile boolean starving = false; // Network thread only
+    private volatile long starvations = 0;
 
     // Mixer sink state variables
     private volatile boolean running = false, opening = false;
 
+    /**
+     * Creates a sink that encodes on the mixer thread, as part of write().
+     */
     public TeamspeakFastMixerSink(AudioFormat audioFormat,
                                   int bufferSizeInBytes,
                                   OpusParameters opusParameters) {
+        this(audioFormat, bufferSizeInBytes, opusParameters, Runnable::run);
+    }
+
+    /**
+     * Creates a sink that encodes on the given executor (i.e. an OpusEncoderPool), off the mixer thread.
+     */
+    public TeamspeakFastMixerSink(AudioFormat audioFormat,
+                                  int bufferSizeInBytes,
+                                  OpusParameters opusParameters,
+                                  Executor encoderExecutor) {
+        this(audioFormat, bufferSizeInBytes, opusParameters, encoderExecutor, null);
+    }
+
+    /**
+     * Creates a sink that encodes on the given executor, with its complexity and bitrate adjusted by a governor.
+     */
+    public TeamspeakFastMixerSink(AudioFormat audioFormat,
+                                  int bufferSizeInBytes,
+                                  OpusParameters opusParameters,
+                                  Executor encoderExecutor,
+                                  OpusGovernor governor) {
 
         this.audioFormat = audioFormat;
+        this.governor = governor;
 
         if (audioFormat.getSampleRate() != 48000)
             throw new IllegalArgumentException("Invalid audio sample rate: " +
@@ -68,11 +164,46 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
         if (bufferSize <= 0 || bufferSize % audioFormat.getChannels() != 0)
             throw new IllegalArgumentException("invalid bufferSize: " + bufferSize);
 
-        this.sampleBuffer = new float[bufferSize];
-        this.availableInput = 0;
-
         this.opusParameters = opusParameters;
-        this.opusFrameSize = (int) getAudioFormat().getSampleRate() / (1000 / opusParameters.getOpusFrameTime());
+        this.silenceThreshold = opusParameters.getOpusSilenceThreshold();
+        this.opusFrameSize = opusParameters.getOpusFrameSize((int) getAudioFormat().getSampleRate());
+
+        // Room for a full buffer, plus the silence padding a flush adds to its last frame
+        this.sampleBuffer = new AudioBuffer(bufferSize + (opusFrameSize * audioFormat.getChannels()));
+
+        this.opusBatch = opusParameters.getOpusBatch();
+        this.batchBuffer = new float[opusBatch * opusFrameSize * audioFormat.getChannels()];
+        this.batchPackets = new OpusPacketRing.Packet[opusBatch];
+        this.batchTargets = new ByteBuffer[opusBatch];
+        this.batchLengths = new int[opusBatch];
+        this.encoderExecutor = encoderExecutor;
+
+        // Enough slots for a full sample buffer's worth of packets, plus a flushed partial frame
+        this.packetRing = new OpusPacketRing(
+                (bufferSize / (opusFrameSize * audioFormat.getChannels())) + 2,
+                MAXIMUM_OPUS_PACKET_SIZE
+        );
+
+        this.highWatermark = bufferSize;
+    }
+
+    /**
+     * Sets the latency the sink keeps queued.  The mixer may only fill the sink up to the high watermark, which caps
+     * the delay between mixing and sending; below the low watermark the sink is starving (see isStarving()), which
+     * makes the mixer tick sooner.  Both are bounded by the buffer size.
+     * @param lowMillis Low watermark, in milliseconds of audio
+     * @param highMillis High watermark, in milliseconds of audio
+     */
+    public void setLatencyWatermarks(int lowMillis, int highMillis) {
+        if (lowMillis < 0 || lowMillis > highMillis)
+            throw new IllegalArgumentException("invalid latency watermarks: " + lowMillis + " > " + highMillis);
+
+        int samplesPerMillisecond = (int) getAudioFormat().getSampleRate() / 1000 * getChannels();
+
+        // At least one frame has to fit, or nothing could ever be encoded
+        this.highWatermark = Math.min(bufferSize,
+                Math.max(opusFrameSize * getChannels(), highMillis * samplesPerMillisecond));
+        this.lowWatermark = Math.min(highWatermark, lowMillis * samplesPerMillisecond);
     }
 
     public AudioFormat getAudioFormat() {
@@ -103,57 +234,349 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
             if (len % getChannels() != 0)
                 throw new IllegalArgumentException("not a full frame");
 
-            // Write to the buffer
-            System.arraycopy(buffer, offs, sampleBuffer, samplePosition, len);
-            samplePosition += len;
-            availableInput -= len;
+            // Hand the samples to the encode stage
+            stamp(writePosition, System.nanoTime());
+            sampleBuffer.write(buffer, offs, len);
+            writePosition += len;
+            availableInput.addAndGet(-len);
+
+            scheduleEncode();
+        }
+    }
+
+    @Override
+    public boolean acceptsPacket(int samples) {
+        return samples == opusFrameSize * getChannels();
+    }
+
+    @Override
+    public boolean preparePacket() {
+        synchronized (stateLock) {
+            if (!running) return false;
+
+            // Packets are queued by the mixer thread rather than the encode stage, so that has to be idle, and
+            // everything written before encoded, first
+            int pending = sampleBuffer.availableOutput();
+            if (pending > 0 || encoding.get()) {
+                if (pending % (opusFrameSize * getChannels()) != 0) flush();
+                return false;
+            }
+
+            return packetRing.size() < packetRing.getCapacity();
+        }
+    }
+
+    @Override
+    public void writePacket(byte[] packet, int length, int samples) {
+        synchronized (stateLock) {
+            if (!running) throw new IllegalStateException("not running");
+
+            OpusPacketRing.Packet slot = packetRing.claim();
+            if (slot == null) throw new IllegalStateException("packet ring full");
+
+            slot.getBuffer().put(packet, 0, length);
+            slot.set(length, samples);
+
+            // The encode stage is idle (see preparePacket()), so its position can be advanced from here
+            slot.stamp(writePosition, System.nanoTime());
+            writePosition += samples;
+            encodePosition += samples;
+
+            availableInput.addAndGet(-samples);
+            opusPacketsPassedThrough ++;
+            opusPosition += samples;
+            position += samples;
 
-            // Read samples from the buffer and encode them into packets
-            position += encode(false);
+            packetRing.publish();
+            opening = false;
         }
     }
 
+    @Override
+    public long getPacketsPassedThrough() {
+        return opusPacketsPassedThrough;
+    }
+
     /**
-     * Encodes the buffer to packets for the packet queue
-     * @return Packets encoded
+     * Pads the samples waiting to be encoded with silence up to a whole frame, so the encode stage emits the tail too.
      */
-    private int encode(boolean flush) {
-        if (flush) Logger.getGlobal().log(Level.FINE, "Flushing TeamspeakFastMixerSink...");
+    private void flush() {
+        Logger.getGlobal().log(Level.FINE, "Flushing TeamspeakFastMixerSink...");
 
-        int written = 0;
+        // The encode stage only takes whole frames, so this remainder is stable while it runs
         int frameSize = opusFrameSize * getChannels();
-        byte[] encoded;
-        long now;
-        int copy;
+        int padding = (frameSize - (sampleBuffer.availableOutput() % frameSize)) % frameSize;
+
+        for (int i = 0; i < padding; i ++) sampleBuffer.write(0f);
+        writePosition += padding;
+        availableInput.addAndGet(-padding);
+
+        scheduleEncode();
+
+        Logger.getGlobal().log(Level.FINE, "Flushed TeamspeakFastMixerSink.");
+    }
+
+    /**
+     * Remembers where and when a write started.  Mixer thread only.
+     */
+    private void stamp(long position, long time) {
+        long write = this.stampWrite;
+        if (write - stampRead >= STAMP_CAPACITY) return; // Full; the stamp before covers this write too
+
+        int index = (int) (write % STAMP_CAPACITY);
+        stampPositions[index] = position;
+        stampTimes[index] = time;
+
+        this.stampWrite = write + 1;
+    }
+
+    /**
+     * Finds when the sample at a position was written.  Encode stage only; positions must not go backwards.
+     * @param position Sample position
+     * @return System.nanoTime() of the write() the sample came in with
+     */
+    private long getStampTime(long position) {
+        long read = this.stampRead, write = this.stampWrite;
+        if (read == write) return System.nanoTime(); // Not stamped
+
+        while (read + 1 < write && stampPositions[(int) ((read + 1) % STAMP_CAPACITY)] <= position) read ++;
+        this.stampRead = read;
+
+        return stampTimes[(int) (read % STAMP_CAPACITY)];
+    }
+
+    /**
+     * Submits the encode stage if a whole frame is waiting and it isn't already submitted.
+     */
+    private void scheduleEncode() {
+        if (sampleBuffer.availableOutput() >= opusFrameSize * getChannels() && encoding.compareAndSet(false, true)) {
+            try {
+                encoderExecutor.execute(encodeTask);
+            } catch (RejectedExecutionException e) {
+                // The pool is shut down; the samples stay queued, and the stage is free to be submitted again
+                releaseEncoder();
+                Logger.getGlobal().log(Level.FINE, "TeamspeakFastMixerSink encode stage rejected", e);
+            }
+        }
+    }
+
+    /**
+     * Encode stage: encodes every whole frame waiting in the sample buffer into the packet ring, up to a batch of
+     * frames at a time.  Never runs more than once at a time per sink, so the encoder and the consumer side of the
+     * sample buffer are only used by one thread.
+     */
+    private void encodePending() {
+        int frameSize = opusFrameSize * getChannels();
+
+        do {
+            try {
+                int frames;
+                while ((frames = Math.min(opusBatch, sampleBuffer.availableOutput() / frameSize)) > 0) {
+                    sampleBuffer.read(batchBuffer, 0, frames * frameSize);
+                    position += encode(batchBuffer, frames, frameSize);
+                }
+            } catch (RuntimeException e) {
+                Logger.getGlobal().log(Level.SEVERE, "Problem encoding audio", e);
+            } finally {
+                releaseEncoder();
+            }
+
+            // Samples may have arrived after the last check, but before the flag was cleared
+        } while (sampleBuffer.availableOutput() >= frameSize && reacquireEncoder());
+    }
+
+    /**
+     * Takes the encode stage back for another pass after it went idle, unless it is being halted.  The flag is taken
+     * before the halt is checked, and haltEncoder() sets the halt before it checks the flag, so one of the two always
+     * sees the other.
+     * @return true if the encode stage may run again
+     */
+    private boolean reacquireEncoder() {
+        if (!encoding.compareAndSet(false, true)) return false;
+        if (!halted) return true;
+
+        releaseEncoder();
+        return false;
+    }
+
+    /**
+     * Marks the encode stage idle, waking haltEncoder() if it is waiting for that.  It only waits after setting the
+     * halt, and checks the flag under idleLock, so the wake-up can't be missed.
+     */
+    private void releaseEncoder() {
+        encoding.set(false);
+
+        if (halted) {
+            synchronized (idleLock) {
+                idleLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Encodes a batch of frames to the packet ring.  Consecutive frames that need the encoder go through it in one
+     * call; settled silence is sent as the cached silent packet instead.
+     * @return Samples encoded
+     */
+    private int encode(float[] frames, int count, int frameSize) {
+        OpusEncoder encoder = this.encoder;
+
+        // Closed, or not enough free slots (only while the network thread skips packets discarded by start()); drop
+        // what doesn't fit
+        int fitting = encoder == null ? 0 : Math.min(count, packetRing.getCapacity() - packetRing.size());
+        if (fitting < count) {
+            overflowed += (long) (count - fitting) * frameSize;
+            availableInput.addAndGet((count - fitting) * frameSize);
+        }
 
-        while (samplePosition >= (flush ? 1 : frameSize)) {
-            copy = Math.min(samplePosition, frameSize);
-            if (flush && copy < frameSize) {
-                for (int i = copy; i < frameSize; i++)
-                    sampleBuffer[i] = 0f;
+        int published = 0; // Frames whose packets are in the ring, and free their samples once sent
 
-                samplePosition = frameSize;
+        try {
+            int run = 0; // Frames waiting for the encoder, ending at the current frame
+            int silenceIndex = -1; // Frame of the run whose packet becomes the cached silent packet
+
+            for (int frame = 0; frame < fitting; frame ++) {
+                if (silenceThreshold >= 0F && kernel.peak(frames, frame * frameSize, frameSize) <= silenceThreshold) {
+                    silentFrames ++;
+                    silenceRun ++;
+                } else {
+                    silenceRun = 0;
+                }
+
+                if (silenceRun > SILENCE_HANGOVER_FRAMES && silencePacketLength > 0) {
+                    published += encodeRun(encoder, frames, frame - run, run, frameSize, silenceIndex);
+                    run = 0;
+                    silenceIndex = -1;
+
+                    // Still silent: repeat the settled silent packet rather than running the encoder again
+                    OpusPacketRing.Packet packet = packetRing.claim();
+                    System.arraycopy(silencePacket, 0, packet.getData(), 0, silencePacketLength);
+                    packet.set(silencePacketLength, frameSize);
+                    opusEncodesSkipped ++;
+
+                    long position = encodePosition + ((long) frame * frameSize);
+                    packet.stamp(position, getStampTime(position));
+                    encodeLatency.record(System.nanoTime() - packet.getTimestamp());
+
+                    opusPosition += frameSize;
+                    packetRing.publish();
+                    published ++;
+                    opening = false;
+                } else {
+                    if (silenceRun == SILENCE_HANGOVER_FRAMES) silenceIndex = run;
+                    run ++;
+                }
             }
 
-            if (encoder == null) openOpusEncoder();
+            published += encodeRun(encoder, frames, fitting - run, run, frameSize, silenceIndex);
+        } finally {
+            // Frames that failed to encode, or were never reached after a failure, have no packet to free their
+            // samples when sent
+            if (published < fitting) availableInput.addAndGet((fitting - published) * frameSize);
+
+            // Dropped frames, and frames that failed to encode, still took up their positions
+            encodePosition += (long) count * frameSize;
+        }
+
+        return fitting * frameSize;
+    }
+
+    /**
+     * Encodes consecutive frames straight into the next packet slots, and publishes them.
+     * @param first First frame of the run, in the batch
+     * @param run Frame count
+     * @param silenceIndex Frame of the run to cache as the silent packet, or -1
+     * @return Frames published
+     */
+    private int encodeRun(OpusEncoder encoder, float[] frames, int first, int run, int frameSize, int silenceIndex) {
+        if (run <= 0) return 0;
+
+        for (int i = 0; i < run; i ++) {
+            batchPackets[i] = packetRing.claim(i);
+            batchTargets[i] = batchPackets[i].getBuffer();
+        }
+
+        long now = System.nanoTime();
 
-            now = System.nanoTime();
-            encoded = encoder.encode(sampleBuffer, frameSize);
-            opusTime += (System.nanoTime() - now);
-            opusPacketsEncoded ++;
-            opusPosition += frameSize;
+        encoder.encode(frames, first * frameSize, run, batchTargets, batchLengths);
 
-            System.arraycopy(sampleBuffer, frameSize, sampleBuffer, 0, samplePosition - frameSize);
-            samplePosition -= frameSize;
-            if (packetQueue.add(new OpusPacket(frameSize, encoded)))
-                written+=frameSize;
+        long end = System.nanoTime();
+        opusTime += (end - now);
+        opusPacketsEncoded += run;
+
+        if (governor != null) {
+            boolean governed = false;
+            for (int i = 0; i < run; i ++) governed |= governor.record((end - now) / run, end);
+            if (governed) applyGovernor(encoder);
         }
 
-        if (written > 0) opening = false;
+        for (int i = 0; i < run; i ++) {
+            OpusPacketRing.Packet packet = batchPackets[i];
+            packet.set(batchLengths[i], frameSize);
+
+            long position = encodePosition + ((long) (first + i) * frameSize);
+            packet.stamp(position, getStampTime(position));
+            encodeLatency.record(end - packet.getTimestamp());
+        }
+
+        if (silenceIndex >= 0) {
+            System.arraycopy(batchPackets[silenceIndex].getData(), 0, silencePacket, 0, batchLengths[silenceIndex]);
+            silencePacketLength = batchLengths[silenceIndex];
+        }
+
+        opusPosition += (long) run * frameSize;
+
+        packetRing.publish(run);
+        opening = false;
+
+        return run;
+    }
+
+    /**
+     * Applies the governor's complexity and bitrate to the encoder.  Encode stage only.
+     */
+    private void applyGovernor(OpusEncoder encoder) {
+        encoder.setEncoderValue(Opus.OPUS_SET_COMPLEXITY_REQUEST, governor.getComplexity());
+        encoder.setEncoderValue(Opus.OPUS_SET_BITRATE_REQUEST, governor.getBitrate());
+
+        Logger.getGlobal().log(Level.FINE, "TeamspeakFastMixerSink encoder governed to complexity " +
+                governor.getComplexity() + ", bitrate " + governor.getBitrate() + " (load " + governor.getLoad() + ")");
+    }
+
+    /**
+     * Waits for the encode stage to go idle, and keeps it from taking another pass until resumeEncoder().  Called with
+     * the state lock held, so nothing new is submitted meanwhile; the encoder and the consumer side of the sample
+     * buffer are then the caller's.  A stage that doesn't finish its pass in time is left running, and the caller
+     * fails rather than touching what it uses.
+     */
+    private void haltEncoder() {
+        halted = true;
+
+        long deadline = System.nanoTime() + ENCODER_HALT_TIMEOUT_NANOS;
+        boolean idle = false;
+
+        try {
+            synchronized (idleLock) {
+                long remaining;
+                while (encoding.get() && (remaining = deadline - System.nanoTime()) > 0L)
+                    TimeUnit.NANOSECONDS.timedWait(idleLock, remaining);
+
+                idle = !encoding.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!idle) halted = false;
+        }
 
-        if (flush) Logger.getGlobal().log(Level.FINE, "Flushed TeamspeakFastMixerSink.");
+        if (!idle) throw new IllegalStateException("encode stage did not stop");
+    }
 
-        return written;
+    /**
+     * Lets the encode stage run again after haltEncoder().  Called with the state lock held.
+     */
+    private void resumeEncoder() {
+        halted = false;
     }
 
     public long getNanotime() {
@@ -171,6 +594,9 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
     public OpusParameters getEncoderParameters() {
         return opusParameters;
     }
+    public OpusGovernor getGovernor() {
+        return governor;
+    }
 
     @Override
     public long getPacketsEncoded() {
@@ -182,12 +608,34 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
         return opusPacketsSent;
     }
 
+    @Override
+    public Histogram getEncodeLatency() {
+        return encodeLatency;
+    }
+
+    @Override
+    public Histogram getPacketLatency() {
+        return packetLatency;
+    }
+
+    @Override
+    public long getSilentFrames() {
+        return silentFrames;
+    }
+
+    @Override
+    public long getEncodesSkipped() {
+        return opusEncodesSkipped;
+    }
+
     /**
-     * Finds the count of available samples to be written to write() in the len param
+     * Finds the count of available samples to be written to write() in the len param: what fits in the buffer, up to
+     * the high watermark
      * @return Available sample count
      */
     public int availableInput() {
-        return availableInput;
+        int available = availableInput.get();
+        return Math.max(0, Math.min(available, highWatermark - (bufferSize - available)));
     }
 
     public boolean isRunning() {
@@ -202,21 +650,38 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
             if (encoder != null) return;
             Logger.getGlobal().log(Level.FINE, "Opening TeamspeakFastMixerSink encoder...");
 
-            encoder = new OpusEncoder(
-                    (int) getAudioFormat().getSampleRate(), // smp rate (always 48kHz)
-                    opusFrameSize,
-                    getChannels(),
-                    audioFormat.isBigEndian()
-                    //,MAXIMUM_OPUS_PACKET_SIZE // Prevent IP fragmentation
-            );
+            if (opusParameters.isOpusDirect())
+                encoder = new DirectOpusEncoder(
+                        (int) getAudioFormat().getSampleRate(), // smp rate (always 48kHz)
+                        opusFrameSize,
+                        getChannels(),
+                        audioFormat.isBigEndian(),
+                        MAXIMUM_OPUS_PACKET_SIZE,
+                        opusBatch // Stages a whole batch at once
+                );
+            else
+                encoder = new OpusEncoder(
+                        (int) getAudioFormat().getSampleRate(), // smp rate (always 48kHz)
+                        opusFrameSize,
+                        getChannels(),
+                        audioFormat.isBigEndian(),
+                        MAXIMUM_OPUS_PACKET_SIZE
+                );
 
             encoder.setEncoderValue(
                     Opus.OPUS_SET_SIGNAL_REQUEST,
                     opusParameters.isOpusMusic() ? Opus.OPUS_SIGNAL_MUSIC : Opus.OPUS_SIGNAL_VOICE
             );
 
-            encoder.setEncoderValue(Opus.OPUS_SET_BITRATE_REQUEST, opusParameters.getOpusBitrate());
-            encoder.setEncoderValue(Opus.OPUS_SET_COMPLEXITY_REQUEST, opusParameters.getOpusComplexity());
+            // A governed encoder picks up where the governor left off
+            encoder.setEncoderValue(
+                    Opus.OPUS_SET_BITRATE_REQUEST,
+                    governor != null ? governor.getBitrate() : opusParameters.getOpusBitrate()
+            );
+            encoder.setEncoderValue(
+                    Opus.OPUS_SET_COMPLEXITY_REQUEST,
+                    governor != null ? governor.getComplexity() : opusParameters.getOpusComplexity()
+            );
             encoder.setEncoderValue(Opus.OPUS_SET_PACKET_LOSS_PERC_REQUEST, opusParameters.getOpusPacketLossPercent());
             encoder.setEncoderValue(Opus.OPUS_SET_VBR_REQUEST, opusParameters.isOpusVbr() ? 1 : 0);
             encoder.setEncoderValue(Opus.OPUS_SET_INBAND_FEC_REQUEST, opusParameters.isOpusFec() ? 1 : 0);
@@ -227,11 +692,17 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
 
     private void closeOpusEncoder() {
         synchronized (stateLock) {
-            if (encoder != null) {
-                Logger.getGlobal().log(Level.FINE, "Closing TeamspeakFastMixerSink encoder...");
-                encoder.close();
-                encoder = null;
-                Logger.getGlobal().log(Level.FINE, "Closed TeamspeakFastMixerSink encoder.");
+            haltEncoder();
+
+            try {
+                if (encoder != null) {
+                    Logger.getGlobal().log(Level.FINE, "Closing TeamspeakFastMixerSink encoder...");
+                    encoder.close();
+                    encoder = null;
+                    Logger.getGlobal().log(Level.FINE, "Closed TeamspeakFastMixerSink encoder.");
+                }
+            } finally {
+                resumeEncoder(); // Without an encoder, the encode stage only drops what is written
             }
         }
     }
@@ -251,23 +722,39 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
             Logger.getGlobal().log(Level.FINE, "Starting TeamspeakFastMixerSink...");
 
             // Flush buffers, clear outgoing packet queues.
-            for (int i = 0; i < sampleBuffer.length; i ++) sampleBuffer[i] = 0f;
-            samplePosition = 0;
-            availableInput = bufferSize;
-            packetQueue.clear();
-
-            // Open (or re-open) Opus encoder.
-            openOpusEncoder();
-
-            // Reset the encoder
-            if (encoder != null) {
-                Logger.getGlobal().log(Level.FINE, "Resetting TeamspeakFastMixerSink...");
-                encoder.reset(); // Reset encoder output
-                Logger.getGlobal().log(Level.FINE, "Reset TeamspeakFastMixerSink.");
+            // The encode stage is idle and held there once halted, so its side of the sample buffer, and the
+            // encoder, can be used from here
+            haltEncoder();
+
+            try {
+                sampleBuffer.skip(sampleBuffer.availableOutput());
+                availableInput.set(bufferSize);
+                packetRing.discard();
+
+                // Skipped samples have no packets to stamp
+                stampRead = stampWrite;
+                encodePosition = writePosition;
+
+                // The encoder is reset below, so its cached silent packet goes too
+                silencePacketLength = 0;
+                silenceRun = 0;
+
+                // Open (or re-open) Opus encoder.
+                openOpusEncoder();
+
+                // Reset the encoder
+                if (encoder != null) {
+                    Logger.getGlobal().log(Level.FINE, "Resetting TeamspeakFastMixerSink...");
+                    encoder.reset(); // Reset encoder output
+                    Logger.getGlobal().log(Level.FINE, "Reset TeamspeakFastMixerSink.");
+                }
+            } finally {
+                resumeEncoder();
             }
 
             // Mark as running.
             opening = true;
+            starving = false;
             running = true;
 
             Logger.getGlobal().log(Level.FINE, "Started TeamspeakFastMixerSink.");
@@ -278,7 +765,7 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
 
     public void drain() throws InterruptedException {
         synchronized (drainLock) {
-            while (running && packetQueue.peek() != null) {
+            while (running && (!packetRing.isEmpty() || encoding.get())) {
                 drainLock.wait();
             }
         }
@@ -297,7 +784,7 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
             Logger.getGlobal().log(Level.FINE, "Stopping TeamspeakFastMixerSink...");
 
             try {
-                encode(true);
+                flush();
             } catch (RuntimeException e) {
                 Logger.getGlobal().log(Level.WARNING, "Problem flushing audio buffer upon close", e);
             }
@@ -317,6 +804,35 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
         return position;
     }
 
+    /**
+     * Tracks the sink dropping below its low watermark.  Network thread only.
+     */
+    private void updateStarving() {
+        boolean starving = running && !opening && getQueuedSamples() < lowWatermark;
+
+        if (starving && !this.starving) starvations ++;
+        this.starving = starving;
+    }
+
+    /**
+     * Gets the count of samples waiting to be encoded or sent, i.e. the latency between the mixer and the network.
+     * @return Queued samples
+     */
+    @Override
+    public int getQueuedSamples() {
+        return bufferSize - availableInput.get();
+    }
+
+    @Override
+    public boolean isStarving() {
+        return starving;
+    }
+
+    @Override
+    public long getStarvations() {
+        return starvations;
+    }
+
     public long getUnderflows() {
         return underflowed;
     }
@@ -331,7 +847,7 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
      */
     @Override
     public boolean isReady() {
-        return (running && !opening) || packetQueue.size() > 0;
+        return (running && !opening) || !packetRing.isEmpty();
     }
 
     @Override
@@ -341,6 +857,9 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
 
     /**
      * Provides OPUS encoded audio (as a packet) to the TS3J UDP audio network thread.
+     *
+     * Packets are copied out of the packet ring into an array reused for every packet of the same length, so the
+     * returned array is only valid until the next call.
      * @return Encoded OPUS audio packet (zero-length packet if there is an underflow).
      */
     @Override
@@ -348,30 +867,32 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
         long start = System.nanoTime();
 
         try {
-            if (packetQueue.peek() == null) {
-                underflowed ++;
-                return new byte[0];
-            }
-
-            OpusPacket packet = packetQueue.remove();
+            OpusPacketRing.Packet packet = packetRing.peek();
 
             if (packet == null) {
                 underflowed ++;
-                return new byte[0];
+                return EMPTY_PACKET;
             }
 
-            availableInput += packet.getSamples();
-            opusBytePosition += packet.getBytes().length;
+            int length = packet.getLength();
+            byte[] bytes = packetArrays[length];
+            if (bytes == null) bytes = packetArrays[length] = new byte[length];
+
+            System.arraycopy(packet.getData(), 0, bytes, 0, length);
+
+            availableInput.addAndGet(packet.getSamples());
+            opusBytePosition += length;
             opusPacketsSent ++;
 
-            return packet.getBytes();
-        } catch (NoSuchElementException ex) {
-            underflowed ++;
-            return new byte[0];
+            packetLatency.record(start - packet.getTimestamp());
+
+            packetRing.release();
+
+            return bytes;
         } finally {
             long networkTime = System.nanoTime() - start;
 
-            if (networkTime >= (opusParameters.getOpusFrameTime() * 1000000L)) {
+            if (networkTime >= opusParameters.getOpusFrameNanos()) {
                 underflowed++;
 
                 Logger.getGlobal().warning("[TeamspeakFastMixerSink] provide() took longer than the expected " +
@@ -380,7 +901,9 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
 
             this.networkTime += networkTime;
 
-            if (packetQueue.peek() == null) {
+            updateStarving();
+
+            if (packetRing.isEmpty()) {
                 synchronized (drainLock) {
                     drainLock.notifyAll();
                 }
@@ -395,22 +918,4 @@ public class TeamspeakFastMixerSink implements OpusMixerSink, Microphone {
     public long getWaitTime() {
         return waitTime;
     }
-
-    private final class OpusPacket {
-        private final int samples;
-        private final byte[] bytes;
-
-        protected OpusPacket(int samples, byte[] bytes) {
-            this.samples = samples;
-            this.bytes = bytes;
-        }
-
-        public int getSamples() {
-            return samples;
-        }
-
-        public byte[] getBytes() {
-            return bytes;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package com.github.manevolent.ts3j.musicbot.client;
+
+import com.github.manevolent.ts3j.audio.Microphone;
+import com.github.manevolent.ts3j.enums.CodecType;
+import com.github.manevolent.ts3j.musicbot.broadcast.BroadcastSubscription;
+
+/**
+ * The microphone a bot hands to ts3j: its own sink, or a shared broadcast while it is subscribed to one.
+ *
+ * Switching waits for a packet being provided, so that a subscription switched away from can be read by something
+ * else (see BroadcastChannel) without the network thread still reading it.
+ */
+public class TeamspeakMicrophone implements Microphone {
+    private final Microphone sink;
+    private BroadcastSubscription subscription = null; // Guarded by this
+
+    public TeamspeakMicrophone(Microphone sink) {
+        this.sink = sink;
+    }
+
+    public synchronized BroadcastSubscription getSubscription() {
+        return subscription;
+    }
+
+    /**
+     * Switches the microphone to a broadcast, or back to the bot's own sink if null.
+     * @param subscription Subscription to play, or null
+     */
+    public synchronized void setSubscription(BroadcastSubscription subscription) {
+        this.subscription = subscription;
+    }
+
+    private Microphone getSource() {
+        BroadcastSubscription subscription = this.subscription;
+
+        if (subscription != null && !subscription.isClosed()) return subscription;
+        else return sink;
+    }
+
+    @Override
+    public synchronized boolean isReady() {
+        return getSource().isReady();
+    }
+
+    @Override
+    public synchronized CodecType getCodec() {
+        return getSource().getCodec();
+    }
+
+    @Override
+    public synchronized byte[] provide() {
+        return getSource().provide();
+    }
+}
@@ -3,6 +3,8 @@ package com.github.manevolent.ts3j.musicbot.config;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import java.util.Map;
+
 public final class ConfigurationHelper {
     public static JsonElement get(JsonObject object, String path) {
         JsonElement element = object;
@@ -20,4 +22,21 @@ public final class ConfigurationHelper {
             return get(defaultObject, path);
         }
     }
+
+    /**
+     * Fills in the keys an object is missing from another, recursing into objects both have.  Arrays and other values
+     * the object has are kept as they are.
+     * @param defaultObject Object to take missing keys from
+     * @param object Object to fill in
+     */
+    public static void merge(JsonObject defaultObject, JsonObject object) {
+        for (Map.Entry<String, JsonElement> entry : defaultObject.entrySet()) {
+            JsonElement element = object.get(entry.getKey());
+
+            if (element == null)
+                object.add(entry.getKey(), entry.getValue().deepCopy());
+            else if (element.isJsonObject() && entry.getValue().isJsonObject())
+                merge(entry.getValue().getAsJsonObject(), element.getAsJsonObject());
+        }
+    }
 }
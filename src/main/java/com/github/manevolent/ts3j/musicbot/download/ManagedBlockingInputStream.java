@@ -0,0 +1,86 @@
+package com.github.manevolent.ts3j.musicbot.download;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * A download stream that tells a ForkJoinPool when a read is about to block.
+ *
+ * Sources are read, and decoded by FFmpeg, on MixerScheduler workers, one per core.  A read with nothing buffered
+ * would otherwise hold a worker for as long as the network stalls, and with it every other bot's tick.  Such a read is
+ * run as a ForkJoinPool.ManagedBlocker, so the pool can run other ticks on a spare thread until it returns.  Reads of
+ * data already buffered, and reads on any other thread, go straight through.
+ */
+public class ManagedBlockingInputStream extends FilterInputStream {
+    public ManagedBlockingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!mayBlock()) return in.read();
+
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+
+        return read > 0 ? b[0] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0 || !mayBlock()) return in.read(b, off, len);
+
+        Read read = new Read(b, off, len);
+
+        try {
+            ForkJoinPool.managedBlock(read);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        if (read.exception != null) throw read.exception;
+
+        return read.result;
+    }
+
+    private boolean mayBlock() throws IOException {
+        return Thread.currentThread() instanceof ForkJoinWorkerThread && in.available() <= 0;
+    }
+
+    private final class Read implements ForkJoinPool.ManagedBlocker {
+        private final byte[] b;
+        private final int off, len;
+
+        private boolean done = false;
+        private int result;
+        private IOException exception;
+
+        private Read(byte[] b, int off, int len) {
+            this.b = b;
+            this.off = off;
+            this.len = len;
+        }
+
+        @Override
+        public boolean block() {
+            try {
+                result = in.read(b, off, len);
+            } catch (IOException e) {
+                exception = e;
+            }
+
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+}
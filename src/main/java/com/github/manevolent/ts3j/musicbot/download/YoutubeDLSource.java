@@ -3,7 +3,9 @@ package com.github.manevolent.ts3j.musicbot.download;
 import com.github.manevolent.ffmpeg4j.FFmpeg;
 import com.github.manevolent.ffmpeg4j.FFmpegException;
 import com.github.manevolent.ts3j.musicbot.audio.player.AudioPlayer;
+import com.github.manevolent.ts3j.musicbot.audio.opus.WebmOpusDemuxer;
 import com.github.manevolent.ts3j.musicbot.audio.player.FFmpegAudioPlayer;
+import com.github.manevolent.ts3j.musicbot.audio.player.OpusPacketPlayer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -12,12 +14,18 @@ import org.bytedeco.javacpp.avformat;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class YoutubeDLSource extends AbstractDownloadSource {
     private final File youtubeDlExecutable;
 
     private final Collection<String> allowedHosts;
 
+    private final boolean passthrough; // Prefer Opus formats, played without decoding where possible
+
+    private final int timeout; // Milliseconds a connection or read may stall for
+
     private RequestMode requestMode = RequestMode.FORCE_HTTP; // Caching
 
     public YoutubeDLSource(JsonObject configuration) {
@@ -31,6 +39,10 @@ public class YoutubeDLSource extends AbstractDownloadSource {
         }
 
         this.allowedHosts = Collections.unmodifiableCollection(allowedHosts);
+
+        this.passthrough = configuration.has("passthrough") && configuration.get("passthrough").getAsBoolean();
+
+        this.timeout = configuration.has("timeout") ? configuration.get("timeout").getAsInt() : 10000;
     }
 
     @Override
@@ -56,12 +68,14 @@ public class YoutubeDLSource extends AbstractDownloadSource {
 
         // -4: Force IPv4, this is necessary for some VM/dedi hosts, which YouTube blocks IPv6 for.
         // --no-warnings: keep clutter off of stderr.
+        // --socket-timeout: give up on a stalled connection, rather than holding up a prefetch thread.
         // -j: JSON metadata ONLY; no download.
         Process process = Runtime.getRuntime().exec(
                 new String[]{
                         youtubeDlExecutable.getAbsolutePath(),
                         "-4",
                         "--no-warnings",
+                        "--socket-timeout", Integer.toString(Math.max(1, timeout / 1000)),
                         "-j",
                         videoUrl.toExternalForm()
                 }
@@ -229,6 +243,40 @@ public class YoutubeDLSource extends AbstractDownloadSource {
         return selectedFormat;
     }
 
+    /**
+     * Finds the best audio-only Opus in WebM format, which can be played without FFmpeg (see OpusPacketPlayer).
+     * @return Format, or null if there is none
+     */
+    private static FormatOption getOpusFormat(Collection<FormatOption> formatOptions) {
+        return formatOptions
+                .stream()
+                .filter(x -> x.getNote() == null || !x.getNote().equals("DASH audio"))
+                .filter(x -> "webm".equalsIgnoreCase(x.getExtension()))
+                .filter(x -> "opus".equalsIgnoreCase(x.getAudioCodec()))
+                .filter(x -> x.getVideoCodec() == null || x.getVideoCodec().equalsIgnoreCase("none"))
+                .max(Comparator.comparingDouble(FormatOption::getAudioBitrate))
+                .orElse(null);
+    }
+
+    private HttpURLConnection openConnection(FormatOption format) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) format.getUrl().openConnection();
+
+        urlConnection.setRequestMethod("GET");
+        urlConnection.setConnectTimeout(timeout);
+        urlConnection.setReadTimeout(timeout);
+
+        for (Map.Entry<String, String> header : format.headers.entrySet())
+            urlConnection.setRequestProperty(header.getKey(), header.getValue());
+
+        int responseCode = urlConnection.getResponseCode();
+        if (responseCode / 100 != 2)
+            throw new IOException("Unexpected response code from URL=" +
+                    format.getUrl().toExternalForm() +
+                    ": " + responseCode);
+
+        return urlConnection;
+    }
+
     public RequestMode getRequestMode() {
         return requestMode;
     }
@@ -325,20 +373,25 @@ public class YoutubeDLSource extends AbstractDownloadSource {
 
         @Override
         public AudioPlayer openPlayer() throws IOException {
-            FormatOption selectedFormat = getBestFormat(formatOptions);
+            // Opus can be sent on to Teamspeak as it is, so it's played without FFmpeg when available
+            FormatOption opusFormat = passthrough ? getOpusFormat(formatOptions) : null;
 
-            HttpURLConnection urlConnection = (HttpURLConnection) selectedFormat.getUrl().openConnection();
+            if (opusFormat != null) {
+                // Played on the mixer workers, which mustn't be held up by the network (as below)
+                InputStream inputStream = new ManagedBlockingInputStream(openConnection(opusFormat).getInputStream());
 
-            urlConnection.setRequestMethod("GET");
+                try {
+                    return new OpusPacketPlayer(new WebmOpusDemuxer(inputStream), 10240);
+                } catch (IOException | RuntimeException e) {
+                    inputStream.close();
 
-            for (Map.Entry<String, String> header : selectedFormat.headers.entrySet())
-                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+                    Logger.getGlobal().log(Level.WARNING, "Problem opening Opus stream, decoding with FFmpeg", e);
+                }
+            }
+
+            FormatOption selectedFormat = getBestFormat(formatOptions);
 
-            int responseCode = urlConnection.getResponseCode();
-            if (responseCode / 100 != 2)
-                throw new IOException("Unexpected response code from URL=" +
-                        selectedFormat.getUrl().toExternalForm() +
-                        ": " + responseCode);
+            HttpURLConnection urlConnection = openConnection(selectedFormat);
 
             // Get MIME type
             String mimeType = null;
@@ -370,7 +423,7 @@ public class YoutubeDLSource extends AbstractDownloadSource {
             try {
                 return FFmpegAudioPlayer.open(
                         inputFormat,
-                        urlConnection.getInputStream(),
+                        new ManagedBlockingInputStream(urlConnection.getInputStream()),
                         10240
                 );
             } catch (FFmpegException e) {
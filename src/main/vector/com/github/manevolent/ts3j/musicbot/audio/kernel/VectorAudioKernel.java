@@ -0,0 +1,69 @@
+package com.github.manevolent.ts3j.musicbot.audio.kernel;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation using the incubating JDK Vector API at the platform's preferred vector width.
+ * Loaded reflectively by {@link AudioKernels}; tails shorter than one vector are finished with scalar loops.
+ */
+public class VectorAudioKernel implements AudioKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    public VectorAudioKernel() {
+        // Fail here (and fall back) rather than on the mixer thread if the module isn't resolvable
+        FloatVector.zero(SPECIES);
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName() + " (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+
+    @Override
+    public void clear(float[] buffer, int offs, int len) {
+        FloatVector zero = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int upper = SPECIES.loopBound(len); i < upper; i += SPECIES.length())
+            zero.intoArray(buffer, offs + i);
+        for (; i < len; i ++) buffer[offs + i] = 0f;
+    }
+
+    @Override
+    public void accumulate(float[] src, int srcOffs, float[] dst, int dstOffs, int len) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(len); i < upper; i += SPECIES.length())
+            FloatVector.fromArray(SPECIES, dst, dstOffs + i)
+                    .add(FloatVector.fromArray(SPECIES, src, srcOffs + i))
+                    .intoArray(dst, dstOffs + i);
+        for (; i < len; i ++) dst[dstOffs + i] += src[srcOffs + i];
+    }
+
+    @Override
+    public void scale(float[] buffer, int offs, int len, float factor) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(len); i < upper; i += SPECIES.length())
+            FloatVector.fromArray(SPECIES, buffer, offs + i).mul(factor).intoArray(buffer, offs + i);
+        for (; i < len; i ++) buffer[offs + i] *= factor;
+    }
+
+    @Override
+    public void clamp(float[] buffer, int offs, int len, float min, float max) {
+        int i = 0;
+        for (int upper = SPECIES.loopBound(len); i < upper; i += SPECIES.length())
+            FloatVector.fromArray(SPECIES, buffer, offs + i).max(min).min(max).intoArray(buffer, offs + i);
+        for (; i < len; i ++) buffer[offs + i] = Math.max(min, Math.min(max, buffer[offs + i]));
+    }
+
+    @Override
+    public float peak(float[] buffer, int offs, int len) {
+        FloatVector peaks = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int upper = SPECIES.loopBound(len); i < upper; i += SPECIES.length())
+            peaks = peaks.max(FloatVector.fromArray(SPECIES, buffer, offs + i).abs());
+        float peak = peaks.reduceLanes(VectorOperators.MAX);
+        for (; i < len; i ++) peak = Math.max(peak, Math.abs(buffer[offs + i]));
+        return peak;
+    }
+}